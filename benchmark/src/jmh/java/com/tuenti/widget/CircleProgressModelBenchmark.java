@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of advancing {@link CircleProgressModel} by one frame.
+ *
+ * {@link #frame()} updates every instance once, like a screen showing that many views would on each vsync, and
+ * reports the time per simulated frame. {@link #update()} updates a single instance and reports the time per
+ * operation. Scenarios keep the models cycling through the states they name:
+ * <ul>
+ * <li>INDETERMINATE: indeterminate pulse</li>
+ * <li>ANIM_PROGRESS: progress tween, restarted with a new value whenever it settles</li>
+ * <li>PROGRESS: settled progress</li>
+ * <li>TRANSITIONS: every phase of both transitions, going back and forth between indeterminate and progress</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CircleProgressModelBenchmark {
+
+	private static final int SIZE = 200;
+	private static final float STROKE_WIDTH = 16;
+	private static final long FRAME_TIME_IN_NANOS = 16666667;
+
+	@Param({"1", "100", "1000"})
+	public int instances;
+
+	public enum Scenario {
+		INDETERMINATE,
+		ANIM_PROGRESS,
+		PROGRESS,
+		TRANSITIONS
+	}
+
+	@Param({"INDETERMINATE", "ANIM_PROGRESS", "PROGRESS", "TRANSITIONS"})
+	public Scenario scenario;
+
+	private CircleProgressModel[] mModels;
+	private int mNextModel;
+
+	@Setup
+	public void setUp() {
+		mModels = new CircleProgressModel[instances];
+		for (int i = 0; i < instances; i++) {
+			CircleProgressModel model = new CircleProgressModel(0, STROKE_WIDTH);
+			model.setSize(SIZE, SIZE);
+			if (scenario != Scenario.INDETERMINATE) {
+				model.setProgress(progressFor(i));
+				settle(model);
+			}
+			// Spread the instances over the animation so they don't change state on the same frame
+			for (int frame = 0; frame < i % 64; frame++) {
+				step(model, i);
+			}
+			mModels[i] = model;
+		}
+	}
+
+	private static void settle(CircleProgressModel model) {
+		while (model.isAnimationInProgress()) {
+			model.update(FRAME_TIME_IN_NANOS);
+		}
+	}
+
+	private static float progressFor(int index) {
+		return 0.1f + (index % 18) * 0.1f;
+	}
+
+	@Benchmark
+	public void frame() {
+		CircleProgressModel[] models = mModels;
+		for (int i = 0; i < models.length; i++) {
+			step(models[i], i);
+		}
+	}
+
+	@Benchmark
+	public void update() {
+		step(mModels[mNextModel], mNextModel);
+		mNextModel = (mNextModel + 1) % mModels.length;
+	}
+
+	private void step(CircleProgressModel model, int index) {
+		model.update(FRAME_TIME_IN_NANOS);
+
+		int state = model.getState();
+		if (scenario == Scenario.ANIM_PROGRESS) {
+			if (state == CircleProgressModel.STATE_PROGRESS) {
+				model.setProgress(model.getProgress() > 1.0f ? 0.3f : 1.7f);
+			}
+		} else if (scenario == Scenario.TRANSITIONS) {
+			if (state == CircleProgressModel.STATE_PROGRESS) {
+				model.setIndeterminate();
+			} else if (state == CircleProgressModel.STATE_INDETERMINATE) {
+				model.setProgress(progressFor(index));
+			}
+		}
+	}
+
+}
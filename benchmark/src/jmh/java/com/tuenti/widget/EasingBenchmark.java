@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single interpolation, evaluating the curves directly or through {@link LookupTableEasing}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EasingBenchmark {
+
+	private static final int INPUT_STEPS = 1000;
+
+	@Param({"DECELERATE", "ACCELERATE_DECELERATE"})
+	public String curve;
+
+	@Param({"0", "64", "256", "1024"})
+	public int tableSize;
+
+	private Easing mEasing;
+	private int mStep;
+
+	@Setup
+	public void setUp() {
+		Easing easing = "DECELERATE".equals(curve) ? Easing.DECELERATE : Easing.ACCELERATE_DECELERATE;
+		mEasing = tableSize > 0 ? LookupTableEasing.obtain(easing, tableSize) : easing;
+	}
+
+	@Benchmark
+	public float interpolate() {
+		mStep = (mStep + 1) % INPUT_STEPS;
+		return mEasing.getInterpolation((float) mStep / INPUT_STEPS);
+	}
+
+}
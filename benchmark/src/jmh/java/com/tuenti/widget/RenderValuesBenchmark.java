@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of computing the arcs drawn by {@link AnimatedCircleProgressView}, without the state machine step. Instances
+ * are settled at progress values covering the first phase, the second phase and a full second phase.
+ *
+ * {@link #frame()} reports the time per simulated frame of every instance, {@link #computeArcs()} the time per
+ * instance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RenderValuesBenchmark {
+
+	private static final int SIZE = 200;
+	private static final float STROKE_WIDTH = 16;
+	private static final long FRAME_TIME_IN_NANOS = 16666667;
+	private static final float[] PROGRESS_VALUES = {0.0f, 0.3f, 0.99f, 1.0f, 1.4f, 2.0f};
+
+	@Param({"1", "100", "1000"})
+	public int instances;
+
+	private CircleProgressModel[] mModels;
+	private int mNextModel;
+
+	@Setup
+	public void setUp() {
+		mModels = new CircleProgressModel[instances];
+		for (int i = 0; i < instances; i++) {
+			CircleProgressModel model = new CircleProgressModel(0, STROKE_WIDTH);
+			model.setSize(SIZE, SIZE);
+			model.setProgress(PROGRESS_VALUES[i % PROGRESS_VALUES.length]);
+			while (model.isAnimationInProgress()) {
+				model.update(FRAME_TIME_IN_NANOS);
+			}
+			mModels[i] = model;
+		}
+	}
+
+	@Benchmark
+	public void frame() {
+		CircleProgressModel[] models = mModels;
+		for (int i = 0; i < models.length; i++) {
+			models[i].updateArcs();
+		}
+	}
+
+	@Benchmark
+	public float computeArcs() {
+		CircleProgressModel model = mModels[mNextModel];
+		mNextModel = (mNextModel + 1) % mModels.length;
+		model.updateArcs();
+		return model.getArcSweepAngle(0);
+	}
+
+}
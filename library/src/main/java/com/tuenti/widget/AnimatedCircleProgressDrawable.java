@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.animation.Interpolator;
+
+/**
+ * Drawable counterpart of {@link AnimatedCircleProgressView} for image views, compound drawables, toolbar icons or
+ * list rows that should not pay for an extra view. It runs the same model and renderer, so states, transitions and
+ * listener callbacks are the same as the view ones.
+ *
+ * Frames are driven through {@link #scheduleSelf(Runnable, long)} while the drawable is visible, running and
+ * animating. It runs from creation, {@link #stop()} freezes it and {@link #start()} resumes it. Durations follow the
+ * system animator duration scale while the drawable is drawn by a view, from Honeycomb. Its intrinsic size is a
+ * multiple of the stroke width, so wrap_content hosts show it. Must be used from the main thread.
+ */
+public class AnimatedCircleProgressDrawable extends Drawable implements Animatable, Runnable {
+
+	private static final long FRAME_DELAY_IN_MILLIS = 16;
+	private static final int OPAQUE = 255;
+	private static final int INTRINSIC_SIZE_IN_STROKE_WIDTHS = 8;
+
+	private final CircleProgressModel mModel;
+	private final CircleProgressRenderer mRenderer;
+	private final int mIntrinsicSize;
+
+	private int mAlpha = OPAQUE;
+	private boolean mRunning = true;
+	private boolean mFrameScheduled;
+	private boolean mResetTimeBase = true;
+	private long mPreviousDrawTimeInNanos;
+
+	public AnimatedCircleProgressDrawable() {
+		this(CircleProgressRenderer.DEFAULT_INDETERMINATE_COLOR,
+				CircleProgressRenderer.DEFAULT_PROGRESS_PENDING_COLOR,
+				CircleProgressRenderer.DEFAULT_PROGRESS_FIRST_PHASE_COLOR,
+				CircleProgressRenderer.DEFAULT_PROGRESS_SECOND_PHASE_COLOR,
+				CircleProgressRenderer.DEFAULT_PROGRESS_STROKE_WIDTH);
+	}
+
+	public AnimatedCircleProgressDrawable(int indeterminateColor,
+			int progressPendingColor,
+			int progressFirstPhaseColor,
+			int progressSecondPhaseColor,
+			float progressStrokeWidth) {
+		mModel = new CircleProgressModel(0, progressStrokeWidth);
+		mIntrinsicSize = (int) Math.ceil(progressStrokeWidth * INTRINSIC_SIZE_IN_STROKE_WIDTHS);
+		mRenderer = new CircleProgressRenderer(CircleProgressStyle.obtain(indeterminateColor,
+				progressPendingColor,
+				progressFirstPhaseColor,
+				progressSecondPhaseColor,
+				progressStrokeWidth));
+	}
+
+	public void setIndeterminate() {
+		mModel.setIndeterminate();
+
+		setStateChanged();
+	}
+
+	public float getProgress() {
+		return mModel.getProgress();
+	}
+
+	public void setProgress(float progress) {
+		mModel.setProgress(progress);
+
+		setStateChanged();
+	}
+
+	/**
+	 * @see AnimatedCircleProgressView#setProgressInterpolator(Interpolator)
+	 */
+	public void setProgressInterpolator(Interpolator interpolator) {
+		mModel.setProgressEasing(interpolator != null ? new InterpolatorEasing(interpolator) : Easing.DECELERATE);
+	}
+
+	/**
+	 * @see AnimatedCircleProgressView#setTransitionInterpolator(Interpolator)
+	 */
+	public void setTransitionInterpolator(Interpolator interpolator) {
+		mModel.setTransitionEasing(interpolator != null
+				? new InterpolatorEasing(interpolator)
+				: Easing.ACCELERATE_DECELERATE);
+	}
+
+	public void setOnAnimationEndListener(AnimatedCircleProgressView.OnAnimationEndListener listener) {
+		mModel.setListener(listener);
+	}
+
+	private void setStateChanged() {
+		mResetTimeBase = false;
+		mPreviousDrawTimeInNanos = System.nanoTime();
+		invalidateSelf();
+	}
+
+	@Override
+	protected void onBoundsChange(Rect bounds) {
+		mModel.setSize(bounds.width(), bounds.height());
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		if (mRunning) {
+			advance();
+		}
+
+		Rect bounds = getBounds();
+		canvas.save();
+		canvas.translate(bounds.left, bounds.top);
+		mRenderer.draw(canvas, mModel);
+		canvas.restore();
+
+		scheduleFrame();
+	}
+
+	private void advance() {
+		long currentTimeInNanos = System.nanoTime();
+		if (mResetTimeBase) {
+			mResetTimeBase = false;
+			mPreviousDrawTimeInNanos = currentTimeInNanos;
+		}
+		mModel.setDurationScale(getAnimatorDurationScale());
+		mModel.update(Math.max(0, currentTimeInNanos - mPreviousDrawTimeInNanos));
+		mPreviousDrawTimeInNanos = currentTimeInNanos;
+	}
+
+	/**
+	 * @return system animator duration scale, or 1 when the drawable is not drawn by a view or before Honeycomb
+	 */
+	private float getAnimatorDurationScale() {
+		if (Build.VERSION.SDK_INT < VERSION_CODES.HONEYCOMB) {
+			return 1.0f;
+		}
+		Callback callback = HoneycombDrawable.getCallback(this);
+		return callback instanceof View
+				? FrameTicker.getInstance(((View) callback).getContext()).getDurationScale()
+				: 1.0f;
+	}
+
+	private void scheduleFrame() {
+		if (mFrameScheduled || !mRunning || !isVisible() || !hasCallback() || !mModel.isAnimationInProgress()) {
+			return;
+		}
+		mFrameScheduled = true;
+		scheduleSelf(this, SystemClock.uptimeMillis() + FRAME_DELAY_IN_MILLIS);
+	}
+
+	/**
+	 * Callbacks can't be read before Honeycomb, where frames are scheduled anyway and dropped without a callback
+	 */
+	private boolean hasCallback() {
+		return Build.VERSION.SDK_INT < VERSION_CODES.HONEYCOMB || HoneycombDrawable.getCallback(this) != null;
+	}
+
+	private void cancelFrame() {
+		if (mFrameScheduled) {
+			mFrameScheduled = false;
+			unscheduleSelf(this);
+		}
+	}
+
+	@Override
+	public void run() {
+		mFrameScheduled = false;
+		invalidateSelf();
+	}
+
+	@Override
+	public void start() {
+		if (mRunning) {
+			return;
+		}
+		mRunning = true;
+		mResetTimeBase = true;
+		invalidateSelf();
+	}
+
+	@Override
+	public void stop() {
+		mRunning = false;
+		cancelFrame();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return mRunning;
+	}
+
+	/**
+	 * Hidden drawables stop scheduling frames and resume, from a fresh time base, once they are visible again or
+	 * when asked to restart
+	 */
+	@Override
+	public boolean setVisible(boolean visible, boolean restart) {
+		boolean changed = super.setVisible(visible, restart);
+		if (!visible) {
+			cancelFrame();
+		} else if (changed || restart) {
+			mResetTimeBase = true;
+			invalidateSelf();
+		}
+		return changed;
+	}
+
+	@Override
+	public void setAlpha(int alpha) {
+		mAlpha = alpha;
+		mRenderer.setAlpha(alpha);
+		invalidateSelf();
+	}
+
+	@Override
+	public int getAlpha() {
+		return mAlpha;
+	}
+
+	@Override
+	public void setColorFilter(ColorFilter colorFilter) {
+		mRenderer.setColorFilter(colorFilter);
+		invalidateSelf();
+	}
+
+	@Override
+	public int getOpacity() {
+		return PixelFormat.TRANSLUCENT;
+	}
+
+	@Override
+	public int getIntrinsicWidth() {
+		return mIntrinsicSize;
+	}
+
+	@Override
+	public int getIntrinsicHeight() {
+		return mIntrinsicSize;
+	}
+
+	@TargetApi(VERSION_CODES.HONEYCOMB)
+	private static class HoneycombDrawable {
+
+		static Callback getCallback(Drawable drawable) {
+			return drawable.getCallback();
+		}
+	}
+
+}
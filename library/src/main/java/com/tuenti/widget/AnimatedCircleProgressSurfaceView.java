@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.database.ContentObserver;
+import android.graphics.Canvas;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * {@link AnimatedCircleProgressView} variant for full screen or very large progress displays. It animates and
+ * rasterizes on a dedicated render thread into its own surface, so none of that cost is paid on the main thread.
+ *
+ * The render thread is paced by a Choreographer of its own, a delayed message before Jelly Bean, and only ticks
+ * while the surface exists and an animation is in progress. State changes reach it as messages through a handler,
+ * so they can be issued from any thread, and progress updates sent faster than the render thread handles them are
+ * merged into the latest one. Listener callbacks are delivered on the main thread.
+ *
+ * A surface behind its window shows the window background through the hole punched for it, so its transparent
+ * pixels draw as a dark box. The surface is placed on top of the window instead, which lets the views behind it show
+ * through but draws it over any sibling that overlaps it.
+ */
+public class AnimatedCircleProgressSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+	private static final int MSG_SET_SIZE = 1;
+	private static final int MSG_SET_PROGRESS = 2;
+	private static final int MSG_SET_INDETERMINATE = 3;
+	private static final int MSG_FRAME = 4;
+	private static final int MSG_UPDATE_DURATION_SCALE = 5;
+
+	private static final long FALLBACK_FRAME_DELAY_IN_MILLIS = 16;
+
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final Object mSurfaceLock = new Object();
+	private final Object mCommandLock = new Object();
+
+	//Guarded by mSurfaceLock
+	private boolean mSurfaceValid;
+
+	//Guarded by mCommandLock
+	private RenderHandler mRenderHandler;
+	private HandlerThread mRenderThread;
+	private DurationScaleObserver mDurationScaleObserver;
+	private float mProgress;
+	private boolean mIndeterminate = true;
+	private boolean mProgressMessagePending;
+
+	//Resource
+	private int mIndeterminateColor = CircleProgressRenderer.DEFAULT_INDETERMINATE_COLOR;
+	private int mProgressPendingColor = CircleProgressRenderer.DEFAULT_PROGRESS_PENDING_COLOR;
+	private int mProgressFirstPhaseColor = CircleProgressRenderer.DEFAULT_PROGRESS_FIRST_PHASE_COLOR;
+	private int mProgressSecondPhaseColor = CircleProgressRenderer.DEFAULT_PROGRESS_SECOND_PHASE_COLOR;
+
+	//Dimen
+	private float mProgressStrokeWidth = CircleProgressRenderer.DEFAULT_PROGRESS_STROKE_WIDTH;
+
+	private volatile AnimatedCircleProgressView.OnAnimationEndListener mListener;
+
+	public AnimatedCircleProgressSurfaceView(Context context) {
+		super(context);
+		initialize();
+	}
+
+	public AnimatedCircleProgressSurfaceView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		initAttributes(context, attrs);
+		initialize();
+	}
+
+	public AnimatedCircleProgressSurfaceView(Context context, AttributeSet attrs, int defStyleAttr) {
+		super(context, attrs, defStyleAttr);
+		initAttributes(context, attrs);
+		initialize();
+	}
+
+	@TargetApi(VERSION_CODES.LOLLIPOP)
+	public AnimatedCircleProgressSurfaceView(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+		super(context, attrs, defStyleAttr, defStyleRes);
+		initAttributes(context, attrs);
+		initialize();
+	}
+
+	private void initAttributes(Context context, AttributeSet attrs) {
+		if (attrs != null) {
+			TypedArray a = context.getTheme().obtainStyledAttributes(attrs, R.styleable.AnimatedCircleProgressView, 0, 0);
+			try {
+				mIndeterminateColor = a.getColor(R.styleable.AnimatedCircleProgressView_indeterminate_color, mIndeterminateColor);
+				mProgressPendingColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_pending_color, mProgressPendingColor);
+				mProgressFirstPhaseColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_first_phase_color, mProgressFirstPhaseColor);
+				mProgressSecondPhaseColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_second_phase_color, mProgressSecondPhaseColor);
+				mProgressStrokeWidth = a.getDimension(R.styleable.AnimatedCircleProgressView_progress_stroke_width, mProgressStrokeWidth);
+			} finally {
+				a.recycle();
+			}
+		}
+	}
+
+	private void initialize() {
+		SurfaceHolder holder = getHolder();
+		holder.setFormat(PixelFormat.TRANSLUCENT);
+		holder.addCallback(this);
+		setZOrderOnTop(true);
+	}
+
+	public void setIndeterminate() {
+		synchronized (mCommandLock) {
+			mIndeterminate = true;
+			if (mRenderHandler != null) {
+				mRenderHandler.removeMessages(MSG_SET_PROGRESS);
+				mProgressMessagePending = false;
+				mRenderHandler.sendEmptyMessage(MSG_SET_INDETERMINATE);
+			}
+		}
+	}
+
+	public float getProgress() {
+		synchronized (mCommandLock) {
+			return mProgress;
+		}
+	}
+
+	/**
+	 * Can be called from any thread
+	 */
+	public void setProgress(float progress) {
+		synchronized (mCommandLock) {
+			mIndeterminate = false;
+			mProgress = Math.max(CircleProgressModel.MIN_PROGRESS, Math.min(CircleProgressModel.DEFAULT_SEGMENT_COUNT, progress));
+			sendProgressLocked();
+		}
+	}
+
+	/**
+	 * Queues a single message for any number of progress updates, it applies the latest one when handled
+	 */
+	private void sendProgressLocked() {
+		if (mRenderHandler != null && !mProgressMessagePending) {
+			mProgressMessagePending = true;
+			mRenderHandler.sendEmptyMessage(MSG_SET_PROGRESS);
+		}
+	}
+
+	private float takePendingProgress() {
+		synchronized (mCommandLock) {
+			mProgressMessagePending = false;
+			return mProgress;
+		}
+	}
+
+	/**
+	 * @param listener listener notified on the main thread
+	 */
+	public void setOnAnimationEndListener(AnimatedCircleProgressView.OnAnimationEndListener listener) {
+		mListener = listener;
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+
+		synchronized (mCommandLock) {
+			mRenderThread = new HandlerThread("AnimatedCircleProgress");
+			mRenderThread.start();
+			mRenderHandler = new RenderHandler(mRenderThread.getLooper(), this);
+			ContentResolver contentResolver = getContext().getContentResolver();
+			if (contentResolver != null) {
+				mDurationScaleObserver = new DurationScaleObserver(mRenderHandler);
+				contentResolver.registerContentObserver(FrameTicker.getDurationScaleUri(), false,
+						mDurationScaleObserver);
+				mRenderHandler.sendEmptyMessage(MSG_UPDATE_DURATION_SCALE);
+			}
+			if (getWidth() > 0 && getHeight() > 0) {
+				mRenderHandler.obtainMessage(MSG_SET_SIZE, getWidth(), getHeight()).sendToTarget();
+			}
+			if (!mIndeterminate) {
+				sendProgressLocked();
+			}
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		synchronized (mCommandLock) {
+			if (mDurationScaleObserver != null) {
+				getContext().getContentResolver().unregisterContentObserver(mDurationScaleObserver);
+				mDurationScaleObserver = null;
+			}
+			mRenderHandler.removeCallbacksAndMessages(null);
+			mRenderHandler = null;
+			mProgressMessagePending = false;
+			mRenderThread.quit();
+			mRenderThread = null;
+		}
+
+		super.onDetachedFromWindow();
+	}
+
+	@Override
+	public void surfaceCreated(SurfaceHolder holder) {
+		synchronized (mSurfaceLock) {
+			mSurfaceValid = true;
+		}
+	}
+
+	@Override
+	public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+		synchronized (mCommandLock) {
+			if (mRenderHandler != null) {
+				mRenderHandler.obtainMessage(MSG_SET_SIZE, width, height).sendToTarget();
+			}
+		}
+	}
+
+	/**
+	 * Once this returns the render thread no longer touches the surface, as the surface contract requires
+	 */
+	@Override
+	public void surfaceDestroyed(SurfaceHolder holder) {
+		synchronized (mSurfaceLock) {
+			mSurfaceValid = false;
+		}
+	}
+
+	/**
+	 * Owns the model and the renderer and only runs on the render thread
+	 */
+	private static class RenderHandler extends Handler implements CircleProgressModel.Listener {
+
+		private final AnimatedCircleProgressSurfaceView mView;
+		private final CircleProgressModel mModel;
+		private final CircleProgressRenderer mRenderer;
+
+		private ChoreographerFrameCallback mFrameCallback;
+		private boolean mFrameScheduled;
+		private boolean mResetTimeBase = true;
+		private long mPreviousFrameTimeInNanos;
+
+		private final Runnable mTransitionToIndeterminateEnd = new Runnable() {
+			@Override
+			public void run() {
+				AnimatedCircleProgressView.OnAnimationEndListener listener = mView.mListener;
+				if (listener != null) {
+					listener.onTransitionToIndeterminateEnd();
+				}
+			}
+		};
+
+		private final Runnable mTransitionToProgressEnd = new Runnable() {
+			@Override
+			public void run() {
+				AnimatedCircleProgressView.OnAnimationEndListener listener = mView.mListener;
+				if (listener != null) {
+					listener.onTransitionToProgressEnd();
+				}
+			}
+		};
+
+		private final Runnable mProgressEnd = new Runnable() {
+			@Override
+			public void run() {
+				AnimatedCircleProgressView.OnAnimationEndListener listener = mView.mListener;
+				if (listener != null) {
+					listener.onProgressEnd();
+				}
+			}
+		};
+
+		RenderHandler(Looper looper, AnimatedCircleProgressSurfaceView view) {
+			super(looper);
+			mView = view;
+			mModel = new CircleProgressModel(0, view.mProgressStrokeWidth);
+			mModel.setListener(this);
+			mRenderer = new CircleProgressRenderer(CircleProgressStyle.obtain(view.mIndeterminateColor,
+					view.mProgressPendingColor,
+					view.mProgressFirstPhaseColor,
+					view.mProgressSecondPhaseColor,
+					view.mProgressStrokeWidth));
+		}
+
+		@Override
+		public void handleMessage(Message message) {
+			switch (message.what) {
+				case MSG_SET_SIZE:
+					mModel.setSize(message.arg1, message.arg2);
+					requestFrame();
+					break;
+				case MSG_SET_PROGRESS:
+					mModel.setProgress(mView.takePendingProgress());
+					setStateChanged();
+					break;
+				case MSG_SET_INDETERMINATE:
+					mModel.setIndeterminate();
+					setStateChanged();
+					break;
+				case MSG_FRAME:
+					doFrame(System.nanoTime());
+					break;
+				case MSG_UPDATE_DURATION_SCALE:
+					updateDurationScale();
+					break;
+			}
+		}
+
+		/**
+		 * Reads the animator duration scale on the render thread, so the setting is never queried on the main thread
+		 */
+		void updateDurationScale() {
+			ContentResolver contentResolver = mView.getContext().getContentResolver();
+			if (contentResolver != null) {
+				mModel.setDurationScale(FrameTicker.readDurationScale(contentResolver));
+				setStateChanged();
+			}
+		}
+
+		private void setStateChanged() {
+			mResetTimeBase = false;
+			mPreviousFrameTimeInNanos = System.nanoTime();
+			requestFrame();
+		}
+
+		private void requestFrame() {
+			if (mFrameScheduled) {
+				return;
+			}
+			mFrameScheduled = true;
+
+			if (Build.VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN) {
+				if (mFrameCallback == null) {
+					mFrameCallback = new ChoreographerFrameCallback(this);
+				}
+				mFrameCallback.postFrame();
+			} else {
+				sendEmptyMessageDelayed(MSG_FRAME, FALLBACK_FRAME_DELAY_IN_MILLIS);
+			}
+		}
+
+		void doFrame(long frameTimeInNanos) {
+			mFrameScheduled = false;
+			if (mResetTimeBase) {
+				mResetTimeBase = false;
+				mPreviousFrameTimeInNanos = frameTimeInNanos;
+			}
+			mModel.update(Math.max(0, frameTimeInNanos - mPreviousFrameTimeInNanos));
+			mPreviousFrameTimeInNanos = frameTimeInNanos;
+
+			if (render() && mModel.isAnimationInProgress()) {
+				requestFrame();
+			} else {
+				mResetTimeBase = true;
+			}
+		}
+
+		/**
+		 * @return false if there is no surface to draw on
+		 */
+		private boolean render() {
+			synchronized (mView.mSurfaceLock) {
+				if (!mView.mSurfaceValid) {
+					return false;
+				}
+
+				SurfaceHolder holder = mView.getHolder();
+				Canvas canvas = holder.lockCanvas();
+				if (canvas == null) {
+					return false;
+				}
+				try {
+					canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+					mRenderer.draw(canvas, mModel);
+				} finally {
+					holder.unlockCanvasAndPost(canvas);
+				}
+				return true;
+			}
+		}
+
+		@Override
+		public void onTransitionToIndeterminateEnd() {
+			mView.mMainHandler.post(mTransitionToIndeterminateEnd);
+		}
+
+		@Override
+		public void onTransitionToProgressEnd() {
+			mView.mMainHandler.post(mTransitionToProgressEnd);
+		}
+
+		@Override
+		public void onProgressEnd() {
+			mView.mMainHandler.post(mProgressEnd);
+		}
+	}
+
+	/**
+	 * Delivers changes of the animator duration scale on the render thread
+	 */
+	private static class DurationScaleObserver extends ContentObserver {
+
+		private final RenderHandler mRenderHandler;
+
+		DurationScaleObserver(RenderHandler renderHandler) {
+			super(renderHandler);
+			mRenderHandler = renderHandler;
+		}
+
+		@Override
+		public void onChange(boolean selfChange) {
+			mRenderHandler.updateDurationScale();
+		}
+	}
+
+	/**
+	 * Choreographer of the render thread, obtained on that thread
+	 */
+	@TargetApi(VERSION_CODES.JELLY_BEAN)
+	private static class ChoreographerFrameCallback implements Choreographer.FrameCallback {
+
+		private final Choreographer mChoreographer = Choreographer.getInstance();
+		private final RenderHandler mRenderHandler;
+
+		ChoreographerFrameCallback(RenderHandler renderHandler) {
+			mRenderHandler = renderHandler;
+		}
+
+		void postFrame() {
+			mChoreographer.postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			mRenderHandler.doFrame(frameTimeNanos);
+		}
+	}
+
+}
@@ -17,86 +17,78 @@ package com.tuenti.widget;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Paint.Style;
 import android.graphics.RectF;
 import android.os.Build.VERSION_CODES;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
-import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.DecelerateInterpolator;
+import android.util.SparseArray;
+import android.view.View;
 import android.view.animation.Interpolator;
 
-public class AnimatedCircleProgressView extends AnimatedView {
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-	private static final int STATE_INDETERMINATE = 0;
-	private static final int STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS = 1;
-	private static final int STATE_ANIM_PROGRESS = 2;
-	private static final int STATE_PROGRESS = 3;
-	private static final int STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE = 4;
+public class AnimatedCircleProgressView extends AnimatedView {
 
-	private static final float INDETERMINATE_ANIMATION_DURATION = 500;
-	private static final float UPDATE_PROGRESS_ANIMATION_DURATION = 1500;
-	private static final float REDUCE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION = 500;
-	private static final float MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION = 500;
+	private static final float DEFAULT_PROGRESS_VALUE = 0.0f;
+	private static final int DEFAULT_INTERPOLATOR_TABLE_SIZE = 0;
+	private static final float PERCENTAGE_LABEL_TEXT_SIZE_RATIO = 0.25f;
 
-	private static final int STATE_PHASE_0 = 0;
-	private static final int STATE_PHASE_1 = 1;
-	private static final int STATE_PHASE_2 = 2;
-	private static final int STATE_PHASE_3 = 3;
-	private static final int STATE_PHASE_4 = 4;
+	private static final int NO_POSTED_PROGRESS = Float.floatToRawIntBits(Float.NaN);
+	private static final long PROGRESS_SOURCE_POLL_INTERVAL_IN_MILLIS = 200;
 
-	private static final float NEAR_ZERO = 0.0001f;
+	//Model
+	private CircleProgressModel mModel;
 
-	private static final float MIN_PROGRESS = 0;
-	private static final float MAX_PROGRESS = 2.0f;
+	//Progress model
+	private float mProgress;
 
-	private static final int DEFAULT_INDETERMINATE_COLOR = 0xFF00FF00;
-	private static final int DEFAULT_PROGRESS_PENDING_COLOR = 0x6000FF00;
-	private static final int DEFAULT_PROGRESS_FIRST_PHASE_COLOR = 0xFF0000FF;
-	private static final int DEFAULT_PROGRESS_SECOND_PHASE_COLOR = 0xFFFF0000;
-	private static final float DEFAULT_PROGRESS_VALUE = 0.0f;
-	private static final float DEFAULT_PROGRESS_STROKE_WIDTH = 16;
+	//Renderer
+	private CircleProgressRenderer mRenderer;
 
-	private static final float ARC_OFFSET_DEGREES = -90;
-	private static final float ARC_INITIAL_DEGREES = 0;
-	private static final float ARC_TARGET_DEGREES = 360;
+	//Dirty region
+	private float[] mAnimationBounds;
 
-	private int mState = STATE_INDETERMINATE;
-	private int mStatePhase = STATE_PHASE_0;
+	//Settled frame
+	private RenderCache mRenderCache;
 
-	private float mCenterX;
-	private float mCenterY;
+	//Pre-rasterized indeterminate circles
+	private boolean mSpriteCacheEnabled;
 
-	//Indeterminate circle model
-	private float mIndeterminateCircleInitialRadius;
-	private float mIndeterminateCircleCurrentRadius;
-	private float mIndeterminateCircleTargetRadius;
-	private float mIndeterminateCircleInitialY;
-	private float mIndeterminateCircleCurrentY;
-	private float mIndeterminateCircleMinimumRadius;
-	private float mIndeterminateCircleDeltaRadius;
-	private int mIndeterminateCircleDirection = 1;
+	//Skip animations that were running when the state was saved
+	private boolean mRestoreSettled;
 
-	//Pending progress arc model
-	private float mPendingArcInitial;
-	private float mPendingArcCurrent;
+	//Percentage drawn at the center, null while disabled
+	private PercentageLabel mPercentageLabel;
+	private boolean mPercentageLabelEnabled;
+	private int mPercentageLabelColor;
+	private boolean mPercentageLabelColorSet;
+	private float mPercentageLabelTextSize;
 
-	//Progress model
-	private float mProgress;
+	//Indeterminate pulse played by the RenderThread, null while disabled
+	private RenderThreadPulse mRenderThreadPulse;
 
-	//Progress arc model
-	private RectF mProgressArcBounds;
-	private float mProgressArcInitialAngle;
-	private float mProgressArcCurrentAngle;
+	//Progress posted from any thread, stored as float bits
+	private final AtomicInteger mPostedProgress = new AtomicInteger(NO_POSTED_PROGRESS);
 
-	//Animation mState
-	private long mAnimationAbsoluteTime;
-	private long mProgressAnimationAbsoluteTime;
-	private float mRelativeProgress;
+	//Progress pulled on every frame
+	private ProgressSource mProgressSource;
+	private boolean mProgressSourceCompleted;
+	private boolean mProgressSourcePollScheduled;
+	private final Runnable mProgressSourcePoll = new Runnable() {
+		@Override
+		public void run() {
+			pollProgressSource();
+		}
+	};
 
 	//Resource
 	private int mIndeterminateColor;
@@ -104,21 +96,13 @@ public class AnimatedCircleProgressView extends AnimatedView {
 	private int mProgressFirstPhaseColor;
 	private int mProgressSecondPhaseColor;
 
-	//Paint
-	private Paint mIndeterminatePaint;
-	private Paint mProgressFirstPhasePaint;
-	private Paint mProgressSecondPhasePaint;
-	private Paint mProgressPendingPaint;
-
 	//Dimen
 	private float mProgressStrokeWidth;
 
 	//Interpolator
-	private DecelerateInterpolator mAccelerateInterpolator;
-	private AccelerateDecelerateInterpolator mAccelerateDecelerateInterpolator;
-
-	//Listeners
-	private OnAnimationEndListener mOnAnimationEndListener;
+	private Interpolator mProgressInterpolator;
+	private Interpolator mTransitionInterpolator;
+	private int mInterpolatorTableSize = DEFAULT_INTERPOLATOR_TABLE_SIZE;
 
 	public AnimatedCircleProgressView(Context context) {
 		super(context);
@@ -144,430 +128,534 @@ public class AnimatedCircleProgressView extends AnimatedView {
 		initialize();
 	}
 
+	/**
+	 * Views without any of our attributes set directly in their tag resolve to the same values for the same theme and
+	 * style, so those are resolved once and reused by every other view inflated alike in the same pass
+	 */
 	private void initAttributes(Context context, AttributeSet attrs) {
-		if (attrs != null) {
-			TypedArray a = context.getTheme().obtainStyledAttributes(attrs, R.styleable.AnimatedCircleProgressView, 0, 0);
-			try {
-				initColorAttributes(a);
-				initValueAttributes(a);
-				initDimenAttributes(a);
-			} finally {
-				a.recycle();
+		if (attrs == null) {
+			return;
+		}
+
+		Resources.Theme theme = context.getTheme();
+		int styleResource = attrs.getStyleAttribute();
+		boolean memoizable = !hasDirectAttributes(attrs);
+		if (memoizable) {
+			ResolvedAttributes resolvedAttributes = ResolvedAttributes.get(theme, styleResource);
+			if (resolvedAttributes != null) {
+				resolvedAttributes.applyTo(this);
+				return;
 			}
 		}
+
+		TypedArray a = theme.obtainStyledAttributes(attrs, R.styleable.AnimatedCircleProgressView, 0, 0);
+		try {
+			initColorAttributes(a);
+			initValueAttributes(a);
+			initDimenAttributes(a);
+		} finally {
+			a.recycle();
+		}
+
+		if (memoizable) {
+			ResolvedAttributes.put(theme, styleResource, new ResolvedAttributes(this));
+		}
+	}
+
+	private static boolean hasDirectAttributes(AttributeSet attrs) {
+		int[] styleable = R.styleable.AnimatedCircleProgressView;
+		for (int i = 0; i < attrs.getAttributeCount(); i++) {
+			int attribute = attrs.getAttributeNameResource(i);
+			for (int styleableAttribute : styleable) {
+				if (attribute == styleableAttribute) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	private void initColorAttributes(TypedArray a) {
-		mIndeterminateColor = a.getColor(R.styleable.AnimatedCircleProgressView_indeterminate_color, DEFAULT_INDETERMINATE_COLOR);
-		mProgressPendingColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_pending_color, DEFAULT_PROGRESS_PENDING_COLOR);
-		mProgressFirstPhaseColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_first_phase_color, DEFAULT_PROGRESS_FIRST_PHASE_COLOR);
-		mProgressSecondPhaseColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_second_phase_color, DEFAULT_PROGRESS_SECOND_PHASE_COLOR);
+		mIndeterminateColor = a.getColor(R.styleable.AnimatedCircleProgressView_indeterminate_color, CircleProgressRenderer.DEFAULT_INDETERMINATE_COLOR);
+		mProgressPendingColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_pending_color, CircleProgressRenderer.DEFAULT_PROGRESS_PENDING_COLOR);
+		mProgressFirstPhaseColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_first_phase_color, CircleProgressRenderer.DEFAULT_PROGRESS_FIRST_PHASE_COLOR);
+		mProgressSecondPhaseColor = a.getColor(R.styleable.AnimatedCircleProgressView_progress_second_phase_color, CircleProgressRenderer.DEFAULT_PROGRESS_SECOND_PHASE_COLOR);
 	}
 
 	private void initValueAttributes(TypedArray a) {
 		mProgress = a.getFloat(R.styleable.AnimatedCircleProgressView_progress, DEFAULT_PROGRESS_VALUE);
+		mInterpolatorTableSize = a.getInt(R.styleable.AnimatedCircleProgressView_interpolator_table_size, DEFAULT_INTERPOLATOR_TABLE_SIZE);
 	}
 
 	private void initDimenAttributes(TypedArray a) {
-		mProgressStrokeWidth = a.getDimension(R.styleable.AnimatedCircleProgressView_progress_stroke_width, DEFAULT_PROGRESS_STROKE_WIDTH);
+		mProgressStrokeWidth = a.getDimension(R.styleable.AnimatedCircleProgressView_progress_stroke_width, CircleProgressRenderer.DEFAULT_PROGRESS_STROKE_WIDTH);
 	}
 
 	private void initialize() {
-		mIndeterminatePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		mIndeterminatePaint.setColor(mIndeterminateColor);
-		mIndeterminatePaint.setStyle(Style.FILL);
-
-		mProgressPendingPaint = buildProgressPaint(mProgressPendingColor);
-		mProgressFirstPhasePaint = buildProgressPaint(mProgressFirstPhaseColor);
-		mProgressSecondPhasePaint = buildProgressPaint(mProgressSecondPhaseColor);
+		mRenderer = new CircleProgressRenderer(CircleProgressStyle.obtain(mIndeterminateColor,
+				mProgressPendingColor,
+				mProgressFirstPhaseColor,
+				mProgressSecondPhaseColor,
+				mProgressStrokeWidth));
 
-		mAccelerateInterpolator = new DecelerateInterpolator();
-		mAccelerateDecelerateInterpolator = new AccelerateDecelerateInterpolator();
-
-		mProgressArcBounds = new RectF();
+		mModel = new CircleProgressModel(mProgress, mProgressStrokeWidth);
+		mPercentageLabelColor = mProgressFirstPhaseColor;
+		updateModelInterpolators();
+		mAnimationBounds = new float[4];
+		mRenderCache = new RenderCache();
 	}
 
 	public Paint buildProgressPaint(int color) {
-		Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		paint.setColor(color);
-		paint.setStyle(Style.STROKE);
-		paint.setStrokeCap(Paint.Cap.ROUND);
-		paint.setStrokeWidth(mProgressStrokeWidth);
-		return paint;
-	}
-
-	public void setIndeterminate() {
-		setState(STATE_INDETERMINATE);
+		return CircleProgressStyle.buildProgressPaint(color, mProgressStrokeWidth);
+	}
+
+	/**
+	 * Sets the interpolator used by the indeterminate pulse and by progress updates. Defaults to a
+	 * {@link android.view.animation.DecelerateInterpolator}.
+	 *
+	 * @param interpolator interpolator to use or null to restore the default one
+	 */
+	public void setProgressInterpolator(Interpolator interpolator) {
+		mProgressInterpolator = interpolator;
+		updateModelInterpolators();
+	}
+
+	/**
+	 * Sets the interpolator used by the transitions between indeterminate and progress states. Defaults to an
+	 * {@link android.view.animation.AccelerateDecelerateInterpolator}.
+	 *
+	 * @param interpolator interpolator to use or null to restore the default one
+	 */
+	public void setTransitionInterpolator(Interpolator interpolator) {
+		mTransitionInterpolator = interpolator;
+		updateModelInterpolators();
+	}
+
+	/**
+	 * Samples the interpolators once into lookup tables of the given size, shared by every view using the same
+	 * interpolators, instead of evaluating them on every frame
+	 *
+	 * @param size number of table entries or 0 to evaluate the interpolators directly
+	 */
+	public void setInterpolatorTableSize(int size) {
+		mInterpolatorTableSize = size;
+		updateModelInterpolators();
+	}
+
+	private void updateModelInterpolators() {
+		mModel.setProgressEasing(buildEasing(mProgressInterpolator, Easing.DECELERATE));
+		mModel.setTransitionEasing(buildEasing(mTransitionInterpolator, Easing.ACCELERATE_DECELERATE));
+	}
+
+	private Easing buildEasing(Interpolator interpolator, Easing defaultEasing) {
+		Easing easing = interpolator != null ? new InterpolatorEasing(interpolator) : defaultEasing;
+		return mInterpolatorTableSize > 0 ? LookupTableEasing.obtain(easing, mInterpolatorTableSize) : easing;
+	}
+
+	/**
+	 * Plays the indeterminate pulse on the RenderThread, so it stays smooth while the main thread is busy. Only
+	 * available on hardware accelerated windows from Lollipop to Oreo MR1; elsewhere the pulse keeps running on the
+	 * main thread.
+	 *
+	 * @param enabled true to use the RenderThread when available
+	 */
+	public void setRenderThreadAnimationEnabled(boolean enabled) {
+		if (enabled && mRenderThreadPulse == null && RenderThreadPulse.isSupported()) {
+			mRenderThreadPulse = new RenderThreadPulse(this);
+		} else if (!enabled && mRenderThreadPulse != null) {
+			stopRenderThreadPulse();
+			mRenderThreadPulse = null;
+		}
 
 		setStateChanged();
 	}
 
-	public float getProgress() {
-		return mProgress;
+	public boolean isRenderThreadAnimationEnabled() {
+		return mRenderThreadPulse != null;
+	}
+
+	/**
+	 * Blits the indeterminate circle, through its pulse and both transitions, from anti-aliased sprites rendered once
+	 * and shared by every view with the same size and stroke, instead of rasterizing it on every frame. Meant for
+	 * low-end devices where rasterization dominates frame time. Progress arcs are still drawn on every frame.
+	 *
+	 * Sprites take about 6.5 bytes per pixel of the square the view is laid out in, so the default 1 MiB cache fits
+	 * views up to about 400 pixels wide, e.g. 130dp at xxhdpi. Larger views keep rasterizing the circle unless
+	 * {@link #setSpriteCacheSize(int) the cache} is raised to fit them.
+	 *
+	 * @param enabled true to draw from sprites
+	 */
+	public void setSpriteCacheEnabled(boolean enabled) {
+		mSpriteCacheEnabled = enabled;
+		updateCircleSprites();
+		mRenderCache.invalidate();
+		invalidate();
+	}
+
+	public boolean isSpriteCacheEnabled() {
+		return mSpriteCacheEnabled;
+	}
+
+	/**
+	 * By default a restored view resumes the exact frame it was saved on, including running transitions. When
+	 * settled, it shows the end of any running animation instead: the latest requested progress, or the
+	 * indeterminate pulse.
+	 *
+	 * @param restoreSettled true to skip the animations running when the state was saved
+	 */
+	public void setRestoreSettled(boolean restoreSettled) {
+		mRestoreSettled = restoreSettled;
+	}
+
+	public boolean isRestoreSettled() {
+		return mRestoreSettled;
+	}
+
+	/**
+	 * Splits the progress in as many segments as colors, each drawn as a lap of the ring over the previous ones, for
+	 * multi-step tasks or progress above 100%. Progress then goes from 0 to the number of colors. By default there
+	 * are two segments, with the first and second phase colors, which the first two colors replace.
+	 *
+	 * @param colors color of each segment, in order
+	 */
+	public void setProgressSegmentColors(int... colors) {
+		mModel.setSegmentCount(colors.length);
+		mProgressFirstPhaseColor = colors[0];
+		mProgressSecondPhaseColor = colors[colors.length > 1 ? 1 : 0];
+		if (!mPercentageLabelColorSet) {
+			mPercentageLabelColor = mProgressFirstPhaseColor;
+		}
+		mRenderer = new CircleProgressRenderer(CircleProgressStyle.obtain(mIndeterminateColor,
+				mProgressPendingColor,
+				colors,
+				mProgressStrokeWidth));
+		updateCircleSprites();
+		updatePercentageLabel();
+		setStateChanged();
 	}
 
-	public void setProgress(float progress) {
-		setState(STATE_ANIM_PROGRESS);
-		mProgressArcInitialAngle = mProgressArcCurrentAngle > NEAR_ZERO ? mProgressArcCurrentAngle : ARC_INITIAL_DEGREES;
-
-		if (progress > MAX_PROGRESS) {
-			mProgress = MAX_PROGRESS;
-		} else if (progress < MIN_PROGRESS) {
-			mProgress = MIN_PROGRESS;
-		} else {
-			mProgress = progress;
+	/**
+	 * @return progress filling every segment
+	 */
+	public float getMaxProgress() {
+		return mModel.getMaxProgress();
+	}
+
+	/**
+	 * Draws the progress as a percentage at the center while the progress arcs are shown, following their
+	 * animation. A progress of 1, a full lap of the ring or a complete {@link ProgressSource}, reads 100%, and so do
+	 * further laps. Texts are built once per text style and shared, so frames don't allocate.
+	 *
+	 * @param enabled true to draw the percentage
+	 */
+	public void setPercentageLabelEnabled(boolean enabled) {
+		mPercentageLabelEnabled = enabled;
+		updatePercentageLabel();
+	}
+
+	public boolean isPercentageLabelEnabled() {
+		return mPercentageLabelEnabled;
+	}
+
+	/**
+	 * @param color text color, the first phase color by default
+	 * @param textSize text size in pixels, or 0 to size it from the view
+	 */
+	public void setPercentageLabelStyle(int color, float textSize) {
+		mPercentageLabelColor = color;
+		mPercentageLabelColorSet = true;
+		mPercentageLabelTextSize = textSize;
+		updatePercentageLabel();
+	}
+
+	private void updatePercentageLabel() {
+		float textSize = mPercentageLabelTextSize > 0
+				? mPercentageLabelTextSize
+				: Math.min(getWidth(), getHeight()) * PERCENTAGE_LABEL_TEXT_SIZE_RATIO;
+		mPercentageLabel = mPercentageLabelEnabled && textSize > 0
+				? PercentageLabel.obtain(mPercentageLabelColor, textSize)
+				: null;
+		mRenderCache.invalidate();
+		invalidate();
+	}
+
+	/**
+	 * Bounds the memory used by the sprites shared between views, 1 MiB by default. Must be called from the main
+	 * thread.
+	 *
+	 * @param maxSizeInBytes cache size
+	 */
+	public static void setSpriteCacheSize(int maxSizeInBytes) {
+		CircleSpriteAtlas.setMaxCacheSize(maxSizeInBytes);
+	}
+
+	private void updateCircleSprites() {
+		CircleSpriteAtlas circleSprites = null;
+		if (mSpriteCacheEnabled && getWidth() > 0 && getHeight() > 0) {
+			circleSprites = CircleSpriteAtlas.obtain(getContext(),
+					mProgressStrokeWidth * 0.5f,
+					mModel.getIndeterminatePulseMaximumRadius());
 		}
+		mRenderer.setCircleSprites(circleSprites);
+	}
 
-		setStateChanged();
+	private boolean isPulseOnRenderThread() {
+		return mRenderThreadPulse != null && mRenderThreadPulse.isRunning();
 	}
 
-	@Override
-	protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
-		mCenterX = width * 0.5f;
-		mCenterY = height * 0.5f;
+	/**
+	 * Hands the pulse back to the main thread, catching the model up with the time it ran on the RenderThread
+	 */
+	private void stopRenderThreadPulse() {
+		if (mRenderThreadPulse == null) {
+			return;
+		}
 
-		float radius = Math.min(mCenterX, mCenterY);
-		mIndeterminateCircleMinimumRadius = radius * 0.8f;
-		mIndeterminateCircleDeltaRadius = radius - mIndeterminateCircleMinimumRadius;
+		long elapsedTimeInNanos = mRenderThreadPulse.stop();
+		if (elapsedTimeInNanos > 0 && mModel.getState() == CircleProgressModel.STATE_INDETERMINATE) {
+			mModel.update(elapsedTimeInNanos);
+		}
+	}
 
-		mProgressArcBounds.left = mCenterX - radius + mProgressStrokeWidth;
-		mProgressArcBounds.right = mCenterX + radius - mProgressStrokeWidth;
-		mProgressArcBounds.top = mCenterY - radius + mProgressStrokeWidth;
-		mProgressArcBounds.bottom = mCenterY + radius - mProgressStrokeWidth;
-		mIndeterminateCircleCurrentY = mCenterY;
+	public void setIndeterminate() {
+		stopRenderThreadPulse();
+		mModel.setIndeterminate();
 
-		mIndeterminateCircleTargetRadius = (mProgressStrokeWidth * 0.5f);
+		setStateChanged();
 	}
 
-	@Override
-	protected void onUpdate(long elapsedTimeInMillis) {
-		mAnimationAbsoluteTime += elapsedTimeInMillis;
-		switch (mState) {
-			case STATE_INDETERMINATE:
-				updateIndeterminateAnim();
-				break;
-			case STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS:
-				updateTransitionFromIndeterminateToProgress(elapsedTimeInMillis);
-				break;
-			case STATE_ANIM_PROGRESS:
-				updateProgress(elapsedTimeInMillis);
-				break;
-			case STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE:
-				updateTransitionFromProgressToIndeterminate(elapsedTimeInMillis);
-				break;
-		}
-	}
-
-	private void updateIndeterminateAnim() {
-		if (mAnimationAbsoluteTime > INDETERMINATE_ANIMATION_DURATION) {
-			mIndeterminateCircleDirection = -mIndeterminateCircleDirection;
-			mAnimationAbsoluteTime -= INDETERMINATE_ANIMATION_DURATION;
-		}
-
-		float initialValue = mIndeterminateCircleMinimumRadius;
-		float finalValue = mIndeterminateCircleMinimumRadius;
-		if (mIndeterminateCircleDirection > 0) {
-			finalValue += mIndeterminateCircleDeltaRadius;
-		} else {
-			initialValue += mIndeterminateCircleDeltaRadius;
-		}
-		mIndeterminateCircleCurrentRadius = interpolateAccelerateAnimation(INDETERMINATE_ANIMATION_DURATION,
-				initialValue,
-				finalValue);
+	public float getProgress() {
+		return mModel.getProgress();
 	}
 
-	private void updateTransitionFromIndeterminateToProgress(long elapsedTimeInMillis) {
-		switch (mStatePhase) {
-			case STATE_PHASE_0:
-				initAnimationStateToTransitionFromIndeterminateToProgress();
-			case STATE_PHASE_1:
-				reduceRadiusToProgressCircleWidth(elapsedTimeInMillis);
-				break;
-			case STATE_PHASE_2:
-				moveCircleToArcInitialPoint(elapsedTimeInMillis);
-				break;
-			case STATE_PHASE_3:
-				expandPendingAndCurrentProgressArcs(elapsedTimeInMillis);
-				break;
-			case STATE_PHASE_4:
-				transitionToProgressState(elapsedTimeInMillis);
-				break;
-		}
-	}
+	public void setProgress(float progress) {
+		stopRenderThreadPulse();
+		mModel.setProgress(progress);
 
-	private void initAnimationStateToTransitionFromIndeterminateToProgress() {
-		mIndeterminateCircleInitialRadius = mIndeterminateCircleCurrentRadius;
-		mPendingArcInitial = ARC_INITIAL_DEGREES;
-		mStatePhase = STATE_PHASE_1;
+		setStateChanged();
 	}
 
-	private void reduceRadiusToProgressCircleWidth(long elapsedTimeInMillis) {
-		mIndeterminateCircleCurrentRadius = interpolateAccelerateDecelerateAnimation(REDUCE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
-				mIndeterminateCircleInitialRadius,
-				mIndeterminateCircleTargetRadius);
+	/**
+	 * Thread safe variant of {@link #setProgress(float)} meant for high frequency producers such as download
+	 * callbacks. Only the latest value is kept and the view applies it on its next frame, so any number of calls
+	 * between two frames costs a single redraw request and a single progress animation restart.
+	 *
+	 * @param progress new progress, NaN values are ignored
+	 */
+	public void postProgress(float progress) {
+		if (Float.isNaN(progress)) {
+			return;
+		}
 
-		if (isAnimationPhaseFinished()) {
-			mIndeterminateCircleCurrentRadius = mIndeterminateCircleTargetRadius;
-			mIndeterminateCircleInitialY = mIndeterminateCircleCurrentY;
-			mStatePhase = STATE_PHASE_2;
-			mAnimationAbsoluteTime = 0;
-			updateTransitionFromIndeterminateToProgress(elapsedTimeInMillis);
+		int previousProgress = mPostedProgress.getAndSet(Float.floatToRawIntBits(progress));
+		if (previousProgress == NO_POSTED_PROGRESS) {
+			postInvalidate();
 		}
 	}
 
-	private void moveCircleToArcInitialPoint(long elapsedTimeInMillis) {
-		mIndeterminateCircleCurrentY = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
-				mIndeterminateCircleInitialY,
-				mProgressArcBounds.top);
-
-		if (isAnimationPhaseFinished()) {
-			mIndeterminateCircleCurrentY = mProgressArcBounds.top;
-			mStatePhase = STATE_PHASE_3;
-			mAnimationAbsoluteTime = 0;
-			updateTransitionFromIndeterminateToProgress(elapsedTimeInMillis);
+	private void consumePostedProgress() {
+		int postedProgress = mPostedProgress.getAndSet(NO_POSTED_PROGRESS);
+		if (postedProgress != NO_POSTED_PROGRESS) {
+			applyProgress(Float.intBitsToFloat(postedProgress));
 		}
 	}
 
-	private void expandPendingAndCurrentProgressArcs(long elapsedTimeInMillis) {
-		mPendingArcCurrent = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
-				mPendingArcInitial,
-				ARC_TARGET_DEGREES);
-		updateProgress(elapsedTimeInMillis);
+	/**
+	 * Binds the view to a source it samples on each frame while it is visible, until the source reports it is
+	 * complete. While the view is settled the source is polled at a low rate instead, and the view only redraws
+	 * once the source changes, and it isn't polled while the view is hidden. While the source can't tell its progress
+	 * the view is indeterminate.
+	 *
+	 * Sources report a fraction between 0 and 1, so they drive the first segment only: a complete source shows a
+	 * single full lap of the ring, whatever the {@link #setProgressSegmentColors(int...) segment count}.
+	 *
+	 * @param source source to sample or null to stop sampling
+	 */
+	public void setProgressSource(ProgressSource source) {
+		mProgressSource = source;
+		mProgressSourceCompleted = false;
 
-		if (isAnimationPhaseFinished()) {
-			mPendingArcCurrent = ARC_TARGET_DEGREES;
-			mStatePhase = STATE_PHASE_4;
-			mAnimationAbsoluteTime = 0;
-			updateTransitionFromIndeterminateToProgress(elapsedTimeInMillis);
-		}
+		setStateChanged();
 	}
 
-	private void transitionToProgressState(long elapsedTimeInMillis) {
-		if (mOnAnimationEndListener != null) {
-			mOnAnimationEndListener.onTransitionToProgressEnd();
-		}
-		setState(STATE_ANIM_PROGRESS);
-		mIndeterminateCircleCurrentRadius = -1;
-		updateProgress(elapsedTimeInMillis);
+	public ProgressSource getProgressSource() {
+		return mProgressSource;
 	}
 
-	private void updateProgress(long elapsedTimeInMillis) {
-		mProgressAnimationAbsoluteTime += elapsedTimeInMillis;
-		float animationRelativeProgress = mProgressAnimationAbsoluteTime / UPDATE_PROGRESS_ANIMATION_DURATION;
-		if (Math.abs(mProgressArcCurrentAngle - mProgress) < NEAR_ZERO && mState == STATE_ANIM_PROGRESS) {
-			if (mOnAnimationEndListener != null) {
-				mOnAnimationEndListener.onProgressEnd();
-			}
-			setState(STATE_PROGRESS);
+	private void sampleProgressSource() {
+		if (mProgressSource == null || mProgressSourceCompleted) {
 			return;
 		}
 
-		float progressToAnimate = mAccelerateInterpolator.getInterpolation(animationRelativeProgress);
-		mProgressArcCurrentAngle = ((mProgress - mProgressArcInitialAngle) * progressToAnimate) + mProgressArcInitialAngle;
-		if (Math.abs(mProgressArcCurrentAngle - mProgress) < NEAR_ZERO) {
-			if (mProgressArcInitialAngle < mProgress) {
-				mProgressArcCurrentAngle = mProgress;
-			} else if (mProgress < mProgressArcInitialAngle) {
-				mProgressArcCurrentAngle = mProgress;
+		float progress = mProgressSource.getProgress();
+		if (progress < 0) {
+			if (mModel.isHeadingToProgress()) {
+				mModel.setIndeterminate();
 			}
+			return;
 		}
-	}
 
-	private void updateTransitionFromProgressToIndeterminate(long elapsedTimeInMillis) {
-		switch (mStatePhase) {
-			case STATE_PHASE_0:
-				initAnimationStateToTransitionFromProgressToIndeterminate();
-			case STATE_PHASE_1:
-				reducePendingAndProgressArc(elapsedTimeInMillis);
-				break;
-			case STATE_PHASE_2:
-				moveIndeterminateCircleToCenter(elapsedTimeInMillis);
-				break;
-			case STATE_PHASE_3:
-				expandIndeterminateCircle(elapsedTimeInMillis);
-				break;
-			case STATE_PHASE_4:
-				transitionToIndeterminateState();
-				break;
-		}
+		mProgressSourceCompleted = progress >= 1.0f;
+		applyProgress(progress);
 	}
 
-	private void initAnimationStateToTransitionFromProgressToIndeterminate() {
-		mProgress = 0;
-		mProgressArcInitialAngle = ARC_INITIAL_DEGREES;
-		mPendingArcInitial = mPendingArcCurrent;
-		mStatePhase = STATE_PHASE_1;
+	private boolean isProgressSourceActive() {
+		return mProgressSource != null && !mProgressSourceCompleted;
 	}
 
-	private void reducePendingAndProgressArc(long elapsedTimeInMillis) {
-		mPendingArcCurrent = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
-				mPendingArcInitial,
-				ARC_INITIAL_DEGREES);
-		updateProgress(elapsedTimeInMillis);
-
-		if (isAnimationPhaseFinished()) {
-			mPendingArcCurrent = ARC_INITIAL_DEGREES;
-			mStatePhase = STATE_PHASE_2;
-			mAnimationAbsoluteTime = 0;
-			mIndeterminateCircleCurrentRadius = mIndeterminateCircleTargetRadius;
-			updateTransitionFromProgressToIndeterminate(elapsedTimeInMillis);
+	/**
+	 * Settled views get no frames, so an active source is polled without drawing until its value changes
+	 */
+	private void updateProgressSourcePoll() {
+		boolean pollNeeded = isProgressSourceActive() && !isAnimationInProgress() && canRunFrameLoop();
+		if (pollNeeded && !mProgressSourcePollScheduled) {
+			mProgressSourcePollScheduled = true;
+			postDelayed(mProgressSourcePoll, PROGRESS_SOURCE_POLL_INTERVAL_IN_MILLIS);
+		} else if (!pollNeeded && mProgressSourcePollScheduled) {
+			mProgressSourcePollScheduled = false;
+			removeCallbacks(mProgressSourcePoll);
 		}
 	}
 
-	private void moveIndeterminateCircleToCenter(long elapsedTimeInMillis) {
-		mIndeterminateCircleCurrentY = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
-				mProgressArcBounds.top,
-				mCenterY);
-
-		if (isAnimationPhaseFinished()) {
-			mIndeterminateCircleCurrentY = mCenterY;
-			mStatePhase = STATE_PHASE_3;
-			mAnimationAbsoluteTime = 0;
-			updateTransitionFromProgressToIndeterminate(elapsedTimeInMillis);
+	private void pollProgressSource() {
+		mProgressSourcePollScheduled = false;
+		if (!isProgressSourceActive()) {
+			return;
 		}
-	}
 
-	private void expandIndeterminateCircle(long elapsedTimeInMillis) {
-		mIndeterminateCircleCurrentRadius = interpolateAccelerateDecelerateAnimation(REDUCE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
-				mIndeterminateCircleTargetRadius,
-				mIndeterminateCircleMinimumRadius);
-
-		if (isAnimationPhaseFinished()) {
-			mIndeterminateCircleCurrentRadius = mIndeterminateCircleMinimumRadius;
-			mIndeterminateCircleInitialY = mCenterY;
-			mStatePhase = STATE_PHASE_4;
-			mAnimationAbsoluteTime = 0;
-			updateTransitionFromProgressToIndeterminate(elapsedTimeInMillis);
+		float progress = mProgressSource.getProgress();
+		boolean changed = progress < 0
+				? mModel.isHeadingToProgress()
+				: progress != mModel.getProgress() || !mModel.isHeadingToProgress();
+		if (changed) {
+			setStateChanged();
+		} else {
+			updateProgressSourcePoll();
 		}
 	}
 
-	private void transitionToIndeterminateState() {
-		if (mOnAnimationEndListener != null) {
-			mOnAnimationEndListener.onTransitionToIndeterminateEnd();
+	private void applyProgress(float progress) {
+		if (progress != mModel.getProgress() || !mModel.isHeadingToProgress()) {
+			stopRenderThreadPulse();
+			mModel.setProgress(progress);
 		}
-		setState(STATE_INDETERMINATE);
-		updateIndeterminateAnim();
-	}
-
-	private boolean isAnimationPhaseFinished() {
-		return mRelativeProgress >= 1.0f;
 	}
 
-	private float interpolateAccelerateDecelerateAnimation(float animationDuration,
-			float initialValue,
-			float finalValue) {
-		return interpolateAnimation(animationDuration, initialValue, finalValue, mAccelerateDecelerateInterpolator);
+	@Override
+	protected void onVisibilityChanged(View changedView, int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+		updateProgressSourcePoll();
 	}
 
-	private float interpolateAccelerateAnimation(float animationDuration,
-			float initialValue,
-			float finalValue) {
-		return interpolateAnimation(animationDuration, initialValue, finalValue, mAccelerateInterpolator);
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		updateProgressSourcePoll();
 	}
 
-	private float interpolateAnimation(float animationDuration, float initialValue, float finalValue, Interpolator interpolator) {
-		mRelativeProgress = mAnimationAbsoluteTime / animationDuration;
-		float interpolatedProgress = interpolator.getInterpolation(mRelativeProgress);
-		float totalMovementNeeded = finalValue - initialValue;
-		return initialValue + (interpolatedProgress * totalMovementNeeded);
+	@Override
+	protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+		super.onSizeChanged(width, height, oldWidth, oldHeight);
+		stopRenderThreadPulse();
+		mModel.setSize(width, height);
+		updateCircleSprites();
+		if (mPercentageLabelEnabled && mPercentageLabelTextSize <= 0) {
+			updatePercentageLabel();
+		}
+		mRenderCache.invalidate();
 	}
 
-	private void setState(int newState) {
-		switch (mState) {
-			case STATE_PROGRESS:
-			case STATE_ANIM_PROGRESS:
-				switch (newState) {
-					case STATE_INDETERMINATE:
-						newState = STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE;
-						mStatePhase = STATE_PHASE_0;
-						mAnimationAbsoluteTime = 0;
-						break;
-				}
-				mProgressAnimationAbsoluteTime = 0;
-				break;
-			case STATE_INDETERMINATE:
-				switch (newState) {
-					case STATE_INDETERMINATE:
-						return;
-					case STATE_ANIM_PROGRESS:
-					case STATE_PROGRESS:
-						newState = STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS;
-						mStatePhase = STATE_PHASE_0;
-						mAnimationAbsoluteTime = 0;
-						break;
-				}
-				break;
-			case STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS:
-			case STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE:
-				if (!isAnimationPhaseFinished()) {
-					return;
-				}
-				mAnimationAbsoluteTime = 0;
-				break;
+	@Override
+	protected void onUpdate(long elapsedTimeInNanos) {
+		mModel.setDurationScale(getAnimatorDurationScale());
+		if (!isPulseOnRenderThread()) {
+			mModel.update(elapsedTimeInNanos);
 		}
-
-		mState = newState;
+		consumePostedProgress();
+		sampleProgressSource();
 	}
 
 	@Override
-	protected void onRender(Canvas canvas) {
-		renderInactive(canvas);
-		renderProgress(canvas);
+	protected void onDraw(Canvas canvas) {
+		super.onDraw(canvas);
+		updateProgressSourcePoll();
 	}
 
-	private void renderInactive(Canvas canvas) {
-		if (mIndeterminateCircleCurrentRadius > 0) {
-			canvas.drawCircle(mCenterX, mIndeterminateCircleCurrentY, mIndeterminateCircleCurrentRadius, mIndeterminatePaint);
+	@Override
+	protected void onDetachedFromWindow() {
+		stopRenderThreadPulse();
+		mProgressSourcePollScheduled = false;
+		removeCallbacks(mProgressSourcePoll);
+		mRenderCache.release();
+		super.onDetachedFromWindow();
+	}
+
+	/**
+	 * Once the view settles the frame no longer changes, so it is recorded once and replayed on every redraw
+	 * requested by the parent until the view animates again. Hardware accelerated canvases before Marshmallow already
+	 * keep the display list of the view, so the frame is drawn directly there.
+	 */
+	@Override
+	protected void onRender(Canvas canvas) {
+		if (mRenderThreadPulse != null && mModel.getState() == CircleProgressModel.STATE_INDETERMINATE
+				&& mModel.isAnimationInProgress()) {
+			if (mRenderThreadPulse.hasEnded()) {
+				stopRenderThreadPulse();
+			}
+			if (mRenderThreadPulse.draw(canvas, mModel, mRenderer.getIndeterminatePaint())) {
+				return;
+			}
 		}
-	}
-
-	private void renderProgress(Canvas canvas) {
-		float firstPhase, secondPhase;
 
-		if (mProgressArcCurrentAngle >= 1.0f) {
-			firstPhase = 2.0f - mProgressArcCurrentAngle;
-			secondPhase = mProgressArcCurrentAngle - 1.0f;
-		} else {
-			firstPhase = mProgressArcCurrentAngle;
-			secondPhase = 0;
+		if (mModel.isAnimationInProgress() || !RenderCache.canCache(canvas)) {
+			mRenderCache.invalidate();
+			renderFrame(canvas);
+			return;
 		}
 
-		if (firstPhase < 1.0f) {
-			canvas.drawArc(mProgressArcBounds, ARC_OFFSET_DEGREES + (firstPhase * ARC_TARGET_DEGREES), mPendingArcCurrent, false, mProgressPendingPaint);
-		}
-		if (firstPhase >= 0 && secondPhase < 1.0f) {
-			float endDegrees = firstPhase * ARC_TARGET_DEGREES;
-			if (isInStateWithProgress() && endDegrees < 0.1f) {
-				endDegrees = 0.1f;
-			}
-			canvas.drawArc(mProgressArcBounds, ARC_OFFSET_DEGREES + (secondPhase * ARC_TARGET_DEGREES), endDegrees, false, mProgressFirstPhasePaint);
-		}
-		if (secondPhase > 0) {
-			float endDegress = secondPhase * ARC_TARGET_DEGREES;
-			if (isInStateWithProgress() && endDegress < 0.1f) {
-				endDegress = 0.1f;
-			}
-			canvas.drawArc(mProgressArcBounds, ARC_OFFSET_DEGREES, endDegress, false, mProgressSecondPhasePaint);
+		if (!mRenderCache.isValid()) {
+			Canvas recordingCanvas = mRenderCache.beginRecording(getWidth(), getHeight());
+			renderFrame(recordingCanvas);
+			mRenderCache.endRecording();
 		}
+		mRenderCache.draw(canvas);
 	}
 
-	private boolean isInStateWithProgress() {
-		return mState == STATE_ANIM_PROGRESS || mState == STATE_PROGRESS;
+	private void renderFrame(Canvas canvas) {
+		mRenderer.draw(canvas, mModel);
+		if (mPercentageLabel != null && mModel.getVisibleArcCount() > 0) {
+			mPercentageLabel.draw(canvas, getWidth() * 0.5f, getHeight() * 0.5f, mModel.getProgressArcCurrentAngle());
+		}
 	}
 
 	@Override
 	protected boolean isAnimationInProgress() {
-		return mState != STATE_PROGRESS;
+		// A posted progress is only read on allowed frames, so frames are requested until one picks it up
+		return (mModel.isAnimationInProgress() && !isPulseOnRenderThread())
+				|| mPostedProgress.get() != NO_POSTED_PROGRESS;
+	}
+
+	@Override
+	protected int getAnimationState() {
+		return mModel.getState();
+	}
+
+	@Override
+	protected void getAnimationBounds(RectF bounds) {
+		mModel.computeAnimationBounds(mAnimationBounds);
+		bounds.set(mAnimationBounds[0], mAnimationBounds[1], mAnimationBounds[2], mAnimationBounds[3]);
 	}
 
 	public void setOnAnimationEndListener(OnAnimationEndListener listener) {
-		mOnAnimationEndListener = listener;
+		mModel.setListener(listener);
 	}
 
 	@Override
 	protected Parcelable onSaveInstanceState() {
 		Parcelable superState = super.onSaveInstanceState();
-		return new SavedState(superState, mProgress, mState);
+		double[] modelSnapshot = new double[CircleProgressModel.SNAPSHOT_SIZE];
+		mModel.saveSnapshot(modelSnapshot);
+		return new SavedState(superState, modelSnapshot);
 	}
 
 	@Override
@@ -579,32 +667,33 @@ public class AnimatedCircleProgressView extends AnimatedView {
 		}
 
 		SavedState savedState = (SavedState) state;
-		mProgress = savedState.mProgress;
-		this.mState = savedState.mState;
+		stopRenderThreadPulse();
+		mModel.restoreSnapshot(savedState.mModelSnapshot);
+		if (mRestoreSettled) {
+			mModel.settle();
+		}
+		mRenderCache.invalidate();
+		setStateChanged();
 	}
 
 	static class SavedState extends BaseSavedState {
 
-		private float mProgress;
-		private int mState;
+		private double[] mModelSnapshot;
 
-		private SavedState(Parcelable superState, float progress, int state) {
+		private SavedState(Parcelable superState, double[] modelSnapshot) {
 			super(superState);
-			mProgress = progress;
-			mState = state;
+			mModelSnapshot = modelSnapshot;
 		}
 
 		private SavedState(Parcel in) {
 			super(in);
-			mProgress = in.readFloat();
-			mState = in.readInt();
+			mModelSnapshot = in.createDoubleArray();
 		}
 
 		@Override
 		public void writeToParcel(Parcel out, int flags) {
 			super.writeToParcel(out, flags);
-			out.writeFloat(mProgress);
-			out.writeInt(mState);
+			out.writeDoubleArray(mModelSnapshot);
 		}
 
 		public static final Parcelable.Creator<SavedState> CREATOR =
@@ -619,7 +708,82 @@ public class AnimatedCircleProgressView extends AnimatedView {
 				};
 	}
 
-	public interface OnAnimationEndListener {
+	/**
+	 * Attribute values resolved from a theme and a style resource alone.
+	 *
+	 * Themes are mutable and can't be observed, e.g. through {@link Resources.Theme#applyStyle(int, boolean)}, so
+	 * values are only kept until the looper of the inflating thread goes idle. Views inflated together, like the
+	 * rows of a list, share them, and any later theme change is seen by the next inflation. Threads without a looper
+	 * don't memoize.
+	 */
+	private static final class ResolvedAttributes {
+
+		private static final Map<Resources.Theme, SparseArray<ResolvedAttributes>> sCache =
+				new WeakHashMap<Resources.Theme, SparseArray<ResolvedAttributes>>();
+		private static boolean sClearScheduled;
+
+		private static final MessageQueue.IdleHandler sClear = new MessageQueue.IdleHandler() {
+			@Override
+			public boolean queueIdle() {
+				synchronized (ResolvedAttributes.class) {
+					sCache.clear();
+					sClearScheduled = false;
+				}
+				return false;
+			}
+		};
+
+		private final int mIndeterminateColor;
+		private final int mProgressPendingColor;
+		private final int mProgressFirstPhaseColor;
+		private final int mProgressSecondPhaseColor;
+		private final float mProgress;
+		private final int mInterpolatorTableSize;
+		private final float mProgressStrokeWidth;
+
+		ResolvedAttributes(AnimatedCircleProgressView view) {
+			mIndeterminateColor = view.mIndeterminateColor;
+			mProgressPendingColor = view.mProgressPendingColor;
+			mProgressFirstPhaseColor = view.mProgressFirstPhaseColor;
+			mProgressSecondPhaseColor = view.mProgressSecondPhaseColor;
+			mProgress = view.mProgress;
+			mInterpolatorTableSize = view.mInterpolatorTableSize;
+			mProgressStrokeWidth = view.mProgressStrokeWidth;
+		}
+
+		static synchronized ResolvedAttributes get(Resources.Theme theme, int styleResource) {
+			SparseArray<ResolvedAttributes> attributesByStyle = sCache.get(theme);
+			return attributesByStyle != null ? attributesByStyle.get(styleResource) : null;
+		}
+
+		static synchronized void put(Resources.Theme theme, int styleResource, ResolvedAttributes attributes) {
+			if (Looper.myLooper() == null) {
+				return;
+			}
+			if (!sClearScheduled) {
+				sClearScheduled = true;
+				Looper.myQueue().addIdleHandler(sClear);
+			}
+			SparseArray<ResolvedAttributes> attributesByStyle = sCache.get(theme);
+			if (attributesByStyle == null) {
+				attributesByStyle = new SparseArray<ResolvedAttributes>();
+				sCache.put(theme, attributesByStyle);
+			}
+			attributesByStyle.put(styleResource, attributes);
+		}
+
+		void applyTo(AnimatedCircleProgressView view) {
+			view.mIndeterminateColor = mIndeterminateColor;
+			view.mProgressPendingColor = mProgressPendingColor;
+			view.mProgressFirstPhaseColor = mProgressFirstPhaseColor;
+			view.mProgressSecondPhaseColor = mProgressSecondPhaseColor;
+			view.mProgress = mProgress;
+			view.mInterpolatorTableSize = mInterpolatorTableSize;
+			view.mProgressStrokeWidth = mProgressStrokeWidth;
+		}
+	}
+
+	public interface OnAnimationEndListener extends CircleProgressModel.Listener {
 		void onTransitionToIndeterminateEnd();
 
 		void onTransitionToProgressEnd();
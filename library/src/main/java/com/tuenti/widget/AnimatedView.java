@@ -18,15 +18,70 @@ package com.tuenti.widget;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.os.Build.VERSION_CODES;
 import android.util.AttributeSet;
 import android.view.View;
 
+/**
+ * View that advances and redraws an animation on every frame while {@link #isAnimationInProgress()} is true.
+ *
+ * The steady state frame path, {@link #onDraw(Canvas)} calling {@link #onUpdate(long)} and then
+ * {@link #onRender(Canvas)}, must not allocate: GC pauses while scrolling lists of these views are visible jank.
+ * Subclasses keep that contract for state transitions, listener callbacks and any value they draw, allocating
+ * what they need up front. The engine side of the contract is enforced by {@code FrameAllocationTest}.
+ */
 public abstract class AnimatedView extends View {
 
-	private static final int MILLISECONDS_IN_NANOSECOND = 1000000;
+	/**
+	 * Animate on every display frame
+	 */
+	public static final int FRAME_RATE_MATCH_DISPLAY = 0;
+
+	/**
+	 * Use the rate set with {@link #setDefaultFrameRate(int)}
+	 */
+	public static final int FRAME_RATE_DEFAULT = -1;
+
+	/**
+	 * Advance the animation by the time actually elapsed between frames
+	 */
+	public static final long TIME_STEP_VARIABLE = TimeStepper.TIME_STEP_VARIABLE;
+
+	private static final long NANOSECONDS_IN_SECOND = 1000000000L;
+	private static final long FRAME_RATE_TOLERANCE_IN_NANOS = 3000000;
+	private static final long DEFAULT_FRAME_INTERVAL_IN_NANOS = 16666667;
+	private static final float ANTI_ALIAS_MARGIN = 1;
+
+	private static int sDefaultFrameRate = FRAME_RATE_MATCH_DISPLAY;
+	private static int sPowerSaveFrameRate = FRAME_RATE_MATCH_DISPLAY;
+
+	private FrameTicker mFrameTicker;
+	private FrameClock mFrameClock;
+
+	private boolean mFrameRequested;
+	private boolean mFrameLoopSuspended = true;
+
+	private final TimeStepper mTimeStepper = new TimeStepper();
+	private final TimeStepper.Target mUpdateTarget = new TimeStepper.Target() {
+		@Override
+		public void onUpdate(long elapsedTimeInNanos) {
+			AnimatedView.this.onUpdate(elapsedTimeInNanos);
+		}
+	};
+
+	private int mFrameRate = FRAME_RATE_DEFAULT;
+	private long mNextFrameTimeInNanos;
+
+	private FrameMetrics mFrameMetrics;
+	private FrameMetricsListener mFrameMetricsListener;
+	private int mFrameMetricsReportInterval;
+	private int mFramesSinceLastReport;
 
-	private long mPreviousDrawTimeInMillis = getCurrentTimeInMillis();
+	private final RectF mAnimationBounds = new RectF();
+	private final RectF mPreviousAnimationBounds = new RectF();
+	private final Rect mDirtyRect = new Rect();
 
 	public AnimatedView(Context context) {
 		super(context);
@@ -45,32 +100,308 @@ public abstract class AnimatedView extends View {
 		super(context, attrs, defStyleAttr, defStyleRes);
 	}
 
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		mFrameTicker = FrameTicker.getInstance(getContext());
+		mFrameTicker.register(this);
+		updateFrameLoopState();
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		mFrameTicker.unregister(this);
+		mFrameTicker = null;
+		updateFrameLoopState();
+		super.onDetachedFromWindow();
+	}
+
+	@Override
+	protected void onVisibilityChanged(View changedView, int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+		updateFrameLoopState();
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		updateFrameLoopState();
+	}
+
+	@Override
+	protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+		super.onSizeChanged(width, height, oldWidth, oldHeight);
+		updateFrameLoopState();
+	}
+
+	/**
+	 * Stops requesting frames while the view can't be seen and resumes them, from a fresh time base, once it is
+	 * visible again, so the time spent hidden is not applied as a single elapsed delta
+	 */
+	private void updateFrameLoopState() {
+		boolean suspended = !canRunFrameLoop();
+		if (suspended == mFrameLoopSuspended) {
+			return;
+		}
+
+		mFrameLoopSuspended = suspended;
+		if (suspended) {
+			mFrameRequested = false;
+		} else {
+			mTimeStepper.invalidateTimeBase();
+			invalidate();
+		}
+	}
+
+	/**
+	 * @return true while the view is attached, visible and laid out, so frames can be requested
+	 */
+	boolean canRunFrameLoop() {
+		return mFrameTicker != null
+				&& getWindowVisibility() == VISIBLE
+				&& isShown()
+				&& getWidth() > 0
+				&& getHeight() > 0;
+	}
+
 	@Override
 	protected void onDraw(Canvas canvas) {
 		super.onDraw(canvas);
 
-		long currentTimeInMillis = getCurrentTimeInMillis();
-		long elapsedTimeInMillis = currentTimeInMillis - mPreviousDrawTimeInMillis;
-		mPreviousDrawTimeInMillis = currentTimeInMillis;
+		FrameMetrics frameMetrics = mFrameMetrics;
+		long currentTimeInNanos = getCurrentTimeInNanos();
+		if (isFrameAllowed(currentTimeInNanos)) {
+			long elapsedTimeInNanos = mTimeStepper.getElapsedTime(currentTimeInNanos);
+			mNextFrameTimeInNanos = currentTimeInNanos + getFrameIntervalInNanos();
 
-		onUpdate(elapsedTimeInMillis);
-		onRender(canvas);
+			if (frameMetrics != null) {
+				int state = getAnimationState();
+				long updateStartTimeInNanos = System.nanoTime();
+				long appliedTimeInNanos = advanceAnimation(elapsedTimeInNanos);
+				frameMetrics.recordUpdate(System.nanoTime() - updateStartTimeInNanos, elapsedTimeInNanos,
+						appliedTimeInNanos, getTargetFrameIntervalInNanos(), state);
+			} else {
+				advanceAnimation(elapsedTimeInNanos);
+			}
+		}
 
-		if (isAnimationInProgress()) {
-			invalidate();
+		if (frameMetrics != null) {
+			long renderStartTimeInNanos = System.nanoTime();
+			onRender(canvas);
+			frameMetrics.recordRender(System.nanoTime() - renderStartTimeInNanos);
+			reportFrameMetrics(frameMetrics);
+		} else {
+			onRender(canvas);
+		}
+
+		if (isAnimationInProgress() && !mFrameLoopSuspended) {
+			updateDirtyRect();
+			mFrameRequested = true;
+			mFrameTicker.requestFrame();
+		} else {
+			// Draws while idle, e.g. a relayout, must not see the idle time as a long frame
+			mTimeStepper.invalidateTimeBase();
+			mPreviousAnimationBounds.setEmpty();
+		}
+	}
+
+	/**
+	 * Next frame has to repaint what the previous frame drew plus everything the current animation may draw
+	 */
+	private void updateDirtyRect() {
+		getAnimationBounds(mAnimationBounds);
+		mAnimationBounds.inset(-ANTI_ALIAS_MARGIN, -ANTI_ALIAS_MARGIN);
+
+		if (mPreviousAnimationBounds.isEmpty()) {
+			mPreviousAnimationBounds.set(mAnimationBounds);
+		} else {
+			mPreviousAnimationBounds.union(mAnimationBounds);
+		}
+		mPreviousAnimationBounds.roundOut(mDirtyRect);
+		mPreviousAnimationBounds.set(mAnimationBounds);
+	}
+
+	/**
+	 * Feeds the elapsed time to {@link #onUpdate(long)}, either at once or in fixed steps. Variable steps are rounded
+	 * to the display vsync, unless a custom {@link FrameClock} drives the view, whose steps are applied as they are.
+	 *
+	 * @return animation time actually applied
+	 */
+	private long advanceAnimation(long elapsedTimeInNanos) {
+		long vsyncIntervalInNanos = mFrameClock == null && mFrameTicker != null
+				? mFrameTicker.getFrameIntervalInNanos()
+				: 0;
+		return mTimeStepper.advance(elapsedTimeInNanos, vsyncIntervalInNanos, mUpdateTarget);
+	}
+
+	private long getCurrentTimeInNanos() {
+		if (mFrameClock != null) {
+			return mFrameClock.getFrameTimeInNanos();
+		}
+		return mFrameTicker != null ? mFrameTicker.getFrameTimeInNanos() : FrameClock.SYSTEM.getFrameTimeInNanos();
+	}
+
+	/**
+	 * Frames drawn before the next allowed frame, because something else invalidated the view, render the last
+	 * state again without advancing the animation. Time keeps accumulating for the next allowed frame.
+	 */
+	private boolean isFrameAllowed(long frameTimeInNanos) {
+		return frameTimeInNanos >= mNextFrameTimeInNanos - FRAME_RATE_TOLERANCE_IN_NANOS;
+	}
+
+	/**
+	 * @return system animator duration scale, 0 when animations are turned off, or 1 while detached
+	 */
+	protected float getAnimatorDurationScale() {
+		return mFrameTicker != null ? mFrameTicker.getDurationScale() : 1.0f;
+	}
+
+	/**
+	 * @return interval between frames the view aims for: the display vsync interval, or longer under a frame rate cap
+	 */
+	private long getTargetFrameIntervalInNanos() {
+		long vsyncIntervalInNanos = mFrameTicker != null
+				? mFrameTicker.getFrameIntervalInNanos()
+				: DEFAULT_FRAME_INTERVAL_IN_NANOS;
+		return Math.max(vsyncIntervalInNanos, getFrameIntervalInNanos());
+	}
+
+	private long getFrameIntervalInNanos() {
+		int frameRate = mFrameRate == FRAME_RATE_DEFAULT ? sDefaultFrameRate : mFrameRate;
+		if (sPowerSaveFrameRate > 0 && mFrameTicker != null && mFrameTicker.isPowerSaveMode()
+				&& (frameRate == FRAME_RATE_MATCH_DISPLAY || sPowerSaveFrameRate < frameRate)) {
+			frameRate = sPowerSaveFrameRate;
+		}
+		return frameRate > 0 ? NANOSECONDS_IN_SECOND / frameRate : 0;
+	}
+
+	/**
+	 * Called by the shared {@link FrameTicker} once per vsync while the view is attached
+	 *
+	 * @param frameTimeInNanos current frame time
+	 * @return time at which the view has to be ticked again or {@link Long#MAX_VALUE} if it does not need it
+	 */
+	long onFrame(long frameTimeInNanos) {
+		if (!mFrameRequested) {
+			return Long.MAX_VALUE;
+		}
+		long currentTimeInNanos = getCurrentTimeInNanos();
+		if (!isFrameAllowed(currentTimeInNanos)) {
+			return frameTimeInNanos + (mNextFrameTimeInNanos - currentTimeInNanos);
+		}
+
+		mFrameRequested = false;
+		invalidate(mDirtyRect.left, mDirtyRect.top, mDirtyRect.right, mDirtyRect.bottom);
+		return Long.MAX_VALUE;
+	}
+
+	private void reportFrameMetrics(FrameMetrics frameMetrics) {
+		if (mFrameMetricsListener != null && ++mFramesSinceLastReport >= mFrameMetricsReportInterval) {
+			mFramesSinceLastReport = 0;
+			mFrameMetricsListener.onFrameMetrics(this, frameMetrics);
 		}
 	}
 
-	private long getCurrentTimeInMillis() {
-		return System.nanoTime() / MILLISECONDS_IN_NANOSECOND;
+	/**
+	 * Starts recording the duration of {@link #onUpdate(long)} and {@link #onRender(Canvas)}, frame counts and time
+	 * spent in each {@link #getAnimationState() animation state} into the given metrics. Recording costs nothing
+	 * while no metrics are set.
+	 *
+	 * @param frameMetrics metrics to record into or null to stop recording
+	 */
+	public void setFrameMetrics(FrameMetrics frameMetrics) {
+		mFrameMetrics = frameMetrics;
+		mFramesSinceLastReport = 0;
+	}
+
+	public FrameMetrics getFrameMetrics() {
+		return mFrameMetrics;
+	}
+
+	/**
+	 * Reports the recorded metrics periodically. Metrics have to be enabled with
+	 * {@link #setFrameMetrics(FrameMetrics)}.
+	 *
+	 * @param listener listener to notify or null to stop reporting
+	 * @param reportIntervalInFrames number of drawn frames between two reports
+	 */
+	public void setFrameMetricsListener(FrameMetricsListener listener, int reportIntervalInFrames) {
+		mFrameMetricsListener = listener;
+		mFrameMetricsReportInterval = reportIntervalInFrames;
+		mFramesSinceLastReport = 0;
+	}
+
+	/**
+	 * Replaces the clock frame times are read from. By default the vsync timestamps of the display are used;
+	 * a {@link ManualFrameClock} steps the animation deterministically.
+	 *
+	 * @param frameClock clock to use or null to go back to the display clock
+	 */
+	public void setFrameClock(FrameClock frameClock) {
+		mFrameClock = frameClock;
+		mTimeStepper.invalidateTimeBase();
+		invalidate();
+	}
+
+	public FrameClock getFrameClock() {
+		return mFrameClock;
+	}
+
+	/**
+	 * Advances the animation in fixed steps instead of by the time elapsed between frames, making it independent
+	 * from frame timing. Time that does not fill a whole step is carried over to the next frame. After a stall no
+	 * more than the given maximum is applied in a single frame, so the animation resumes smoothly instead of jumping
+	 * through its phases.
+	 *
+	 * @param timeStepInNanos duration of a step or {@link #TIME_STEP_VARIABLE}
+	 * @param maxFrameDeltaInNanos maximum animation time applied per frame
+	 */
+	public void setFixedTimeStep(long timeStepInNanos, long maxFrameDeltaInNanos) {
+		mTimeStepper.setFixedTimeStep(timeStepInNanos, maxFrameDeltaInNanos);
+	}
+
+	public long getFixedTimeStep() {
+		return mTimeStepper.getFixedTimeStep();
+	}
+
+	/**
+	 * Caps the rate at which this view animates
+	 *
+	 * @param frameRate frames per second, {@link #FRAME_RATE_MATCH_DISPLAY} or {@link #FRAME_RATE_DEFAULT}
+	 */
+	public void setFrameRate(int frameRate) {
+		mFrameRate = frameRate;
+	}
+
+	public int getFrameRate() {
+		return mFrameRate;
+	}
+
+	/**
+	 * Caps the rate at which every view without its own frame rate animates. Must be called from the main thread.
+	 *
+	 * @param frameRate frames per second or {@link #FRAME_RATE_MATCH_DISPLAY}
+	 */
+	public static void setDefaultFrameRate(int frameRate) {
+		sDefaultFrameRate = frameRate;
+	}
+
+	/**
+	 * Frame rate every view switches to while the OS battery saver is on, if it is lower than the one they use.
+	 * Battery saver is only detected on Lollipop and above. Must be called from the main thread.
+	 *
+	 * @param frameRate frames per second or {@link #FRAME_RATE_MATCH_DISPLAY} to ignore battery saver
+	 */
+	public static void setPowerSaveFrameRate(int frameRate) {
+		sPowerSaveFrameRate = frameRate;
 	}
 
 	/**
 	 * Update current view draw state
 	 *
-	 * @param elapsedTimeInMillis time since the last frame
+	 * @param elapsedTimeInNanos time since the last frame, in whole vsync intervals of the display
 	 */
-	protected abstract void onUpdate(long elapsedTimeInMillis);
+	protected abstract void onUpdate(long elapsedTimeInNanos);
 
 	/**
 	 * Render the view in its current state
@@ -86,11 +417,34 @@ public abstract class AnimatedView extends View {
 	 */
 	protected abstract boolean isAnimationInProgress();
 
+	/**
+	 * State the view is animating, used to break down the time recorded in {@link FrameMetrics}
+	 *
+	 * @return state between 0 and {@link FrameMetrics#MAX_TRACKED_STATES} - 1
+	 */
+	protected int getAnimationState() {
+		return 0;
+	}
+
+	/**
+	 * Area the view may draw to while the current animation runs. Only this area, together with the one reported
+	 * on the previous frame, is invalidated on each animation frame. Defaults to the whole view.
+	 *
+	 * Only software rendering repaints less for it: from Lollipop the hardware renderer ignores dirty rects and
+	 * redraws the whole display list, so hardware accelerated views save nothing there.
+	 *
+	 * @param bounds rect that receives the animation bounds in view coordinates
+	 */
+	protected void getAnimationBounds(RectF bounds) {
+		bounds.set(0, 0, getWidth(), getHeight());
+	}
+
 	/**
 	 * Will notify the view so there's a change that needs to start/stop an animation
 	 */
 	protected void setStateChanged() {
-		mPreviousDrawTimeInMillis = getCurrentTimeInMillis();
+		mTimeStepper.reset(getCurrentTimeInNanos());
+		mNextFrameTimeInNanos = 0;
 		invalidate();
 	}
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * Forwards {@link DrawTarget} operations to the canvas currently being drawn
+ */
+final class CanvasDrawTarget implements DrawTarget {
+
+	private final RectF mArcBounds = new RectF();
+	private Paint[] mPaints;
+
+	private Canvas mCanvas;
+	private CircleSpriteAtlas mCircleSprites;
+	private Paint mCircleSpritePaint;
+
+	/**
+	 * @param paints paints indexed by the PAINT_* constants
+	 */
+	CanvasDrawTarget(Paint[] paints) {
+		mPaints = paints;
+	}
+
+	void setCanvas(Canvas canvas) {
+		mCanvas = canvas;
+	}
+
+	/**
+	 * @param paints paints indexed by the PAINT_* constants
+	 */
+	void setPaints(Paint[] paints) {
+		mPaints = paints;
+	}
+
+	/**
+	 * @param circleSprites atlas to blit circles from or null to rasterize them
+	 * @param paint paint blitting the sprites, with bitmap filtering enabled
+	 */
+	void setCircleSprites(CircleSpriteAtlas circleSprites, Paint paint) {
+		mCircleSprites = circleSprites;
+		mCircleSpritePaint = paint;
+	}
+
+	@Override
+	public void drawCircle(float centerX, float centerY, float radius, int paint) {
+		if (mCircleSprites != null) {
+			mCircleSprites.drawCircle(mCanvas, centerX, centerY, radius, mCircleSpritePaint);
+		} else {
+			mCanvas.drawCircle(centerX, centerY, radius, mPaints[paint]);
+		}
+	}
+
+	@Override
+	public void drawArc(float left, float top, float right, float bottom, float startAngle, float sweepAngle, int paint) {
+		mArcBounds.set(left, top, right, bottom);
+		mCanvas.drawArc(mArcBounds, startAngle, sweepAngle, false, mPaints[paint]);
+	}
+
+}
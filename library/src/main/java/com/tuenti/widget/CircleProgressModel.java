@@ -0,0 +1,997 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Animation engine behind {@link AnimatedCircleProgressView}.
+ *
+ * Holds the state machine and the per-frame math without depending on any Android class. It is advanced with
+ * {@link #update(long)} and exposes the resulting frame as primitive render values (indeterminate circle and
+ * progress arcs), so it can be driven and inspected on a plain JVM.
+ */
+public class CircleProgressModel {
+
+	public static final int STATE_INDETERMINATE = 0;
+	public static final int STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS = 1;
+	public static final int STATE_ANIM_PROGRESS = 2;
+	public static final int STATE_PROGRESS = 3;
+	public static final int STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE = 4;
+
+	public static final int STATE_PHASE_0 = 0;
+	public static final int STATE_PHASE_1 = 1;
+	public static final int STATE_PHASE_2 = 2;
+	public static final int STATE_PHASE_3 = 3;
+	public static final int STATE_PHASE_4 = 4;
+
+	public static final float MIN_PROGRESS = 0;
+
+	public static final int DEFAULT_SEGMENT_COUNT = 2;
+
+	/**
+	 * Arcs drawn per frame at most, whatever the segment count: the current lap and what is left of the ring
+	 */
+	public static final int MAX_VISIBLE_ARCS = 2;
+
+	/**
+	 * Length of the array filled by {@link #saveSnapshot(double[])}
+	 */
+	public static final int SNAPSHOT_SIZE = 17;
+
+	private static final float NANOSECONDS_IN_MILLISECOND = 1000000;
+
+	private static final float INDETERMINATE_ANIMATION_DURATION = 500 * NANOSECONDS_IN_MILLISECOND;
+	private static final float UPDATE_PROGRESS_ANIMATION_DURATION = 1500 * NANOSECONDS_IN_MILLISECOND;
+	private static final float REDUCE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION = 500 * NANOSECONDS_IN_MILLISECOND;
+	private static final float MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION = 500 * NANOSECONDS_IN_MILLISECOND;
+
+	private static final float NEAR_ZERO = 0.0001f;
+
+	private static final int NO_PENDING_STATE = -1;
+
+	private static final float ARC_OFFSET_DEGREES = -90;
+	private static final float ARC_INITIAL_DEGREES = 0;
+	private static final float ARC_TARGET_DEGREES = 360;
+	private static final float ARC_MINIMUM_SWEEP_DEGREES = 0.1f;
+
+	private int mState = STATE_INDETERMINATE;
+	private int mStatePhase = STATE_PHASE_0;
+
+	private float mCenterX;
+	private float mCenterY;
+	private float mRadius;
+
+	//Circle values of a snapshot restored before the size was known, relative to the center and to the radius
+	private boolean mSnapshotGeometryPending;
+
+	//Indeterminate circle model
+	private float mIndeterminateCircleInitialRadius;
+	private float mIndeterminateCircleCurrentRadius;
+	private float mIndeterminateCircleTargetRadius;
+	private float mIndeterminateCircleInitialY;
+	private float mIndeterminateCircleCurrentY;
+	private float mIndeterminateCircleMinimumRadius;
+	private float mIndeterminateCircleDeltaRadius;
+	private int mIndeterminateCircleDirection = 1;
+
+	//Pending progress arc model
+	private float mPendingArcInitial;
+	private float mPendingArcCurrent;
+
+	//Progress model
+	private float mProgress;
+	private int mSegmentCount = DEFAULT_SEGMENT_COUNT;
+
+	//Latest request received while a transition was running, applied once it completes
+	private int mPendingState = NO_PENDING_STATE;
+	private float mPendingProgress;
+
+	//Progress arc model
+	private float mProgressArcLeft;
+	private float mProgressArcTop;
+	private float mProgressArcRight;
+	private float mProgressArcBottom;
+	private float mProgressArcInitialAngle;
+	private float mProgressArcCurrentAngle;
+
+	//Animation mState, times in nanoseconds
+	private long mAnimationAbsoluteTime;
+	private long mProgressAnimationAbsoluteTime;
+	private float mRelativeProgress;
+	private float mDurationScale = 1.0f;
+
+	//Render values, visible arcs in drawing order
+	private final float[] mArcStartAngles = new float[MAX_VISIBLE_ARCS];
+	private final float[] mArcSweepAngles = new float[MAX_VISIBLE_ARCS];
+	private final int[] mArcPaints = new int[MAX_VISIBLE_ARCS];
+	private int mVisibleArcCount;
+
+	//Dimen
+	private float mProgressStrokeWidth;
+
+	//Interpolator
+	private Easing mAccelerateInterpolator = Easing.DECELERATE;
+	private Easing mAccelerateDecelerateInterpolator = Easing.ACCELERATE_DECELERATE;
+
+	//Listeners
+	private Listener mListener;
+
+	public CircleProgressModel(float progress, float progressStrokeWidth) {
+		mProgress = progress;
+		mProgressStrokeWidth = progressStrokeWidth;
+	}
+
+	public void setListener(Listener listener) {
+		mListener = listener;
+	}
+
+	/**
+	 * Sets the curve used by the indeterminate pulse and by progress updates
+	 */
+	public void setProgressEasing(Easing easing) {
+		mAccelerateInterpolator = easing;
+	}
+
+	/**
+	 * Sets the curve used by every phase of the transitions between indeterminate and progress states
+	 */
+	public void setTransitionEasing(Easing easing) {
+		mAccelerateDecelerateInterpolator = easing;
+	}
+
+	public Easing getProgressEasing() {
+		return mAccelerateInterpolator;
+	}
+
+	/**
+	 * Scales every animation duration, like the system animator duration scale does. With a scale of 0 every
+	 * transition and progress update completes on the next update, still notifying the listener in order, and the
+	 * indeterminate circle stops pulsing.
+	 *
+	 * @param durationScale factor applied to the durations, 1 for the default speed
+	 */
+	public void setDurationScale(float durationScale) {
+		mDurationScale = Math.max(0, durationScale);
+	}
+
+	public float getDurationScale() {
+		return mDurationScale;
+	}
+
+	/**
+	 * Splits the progress in segments, drawn as consecutive laps of the ring with a paint each. Progress then goes
+	 * from {@link #MIN_PROGRESS} to the segment count.
+	 *
+	 * @param segmentCount number of segments, 2 by default
+	 */
+	public void setSegmentCount(int segmentCount) {
+		if (segmentCount < 1) {
+			throw new IllegalArgumentException("Progress needs at least one segment");
+		}
+		mSegmentCount = segmentCount;
+		mProgress = Math.min(mProgress, segmentCount);
+		mPendingProgress = Math.min(mPendingProgress, segmentCount);
+		mProgressArcInitialAngle = Math.min(mProgressArcInitialAngle, segmentCount);
+		mProgressArcCurrentAngle = Math.min(mProgressArcCurrentAngle, segmentCount);
+		updateArcs();
+	}
+
+	public int getSegmentCount() {
+		return mSegmentCount;
+	}
+
+	/**
+	 * @return progress filling every segment
+	 */
+	public float getMaxProgress() {
+		return mSegmentCount;
+	}
+
+	/**
+	 * Requests the indeterminate state. A transition to progress that already started is completed first.
+	 */
+	public void setIndeterminate() {
+		switch (mState) {
+			case STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS:
+				if (mStatePhase == STATE_PHASE_0) {
+					mState = STATE_INDETERMINATE;
+					mPendingState = NO_PENDING_STATE;
+					mProgress = 0;
+				} else {
+					mPendingState = STATE_INDETERMINATE;
+				}
+				return;
+			case STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE:
+				mPendingState = NO_PENDING_STATE;
+				return;
+		}
+		setState(STATE_INDETERMINATE);
+	}
+
+	/**
+	 * @return latest requested progress
+	 */
+	public float getProgress() {
+		return mPendingState == STATE_ANIM_PROGRESS ? mPendingProgress : mProgress;
+	}
+
+	/**
+	 * Requests a progress. While a transition runs only the latest request is kept and the model heads straight to it
+	 * once the transition completes; the transition from indeterminate picks it up directly until its arcs show up.
+	 */
+	public void setProgress(float progress) {
+		if (progress > mSegmentCount) {
+			progress = mSegmentCount;
+		} else if (progress < MIN_PROGRESS) {
+			progress = MIN_PROGRESS;
+		}
+
+		switch (mState) {
+			case STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS:
+				if (mStatePhase < STATE_PHASE_3) {
+					mProgress = progress;
+					mPendingState = NO_PENDING_STATE;
+				} else {
+					setPendingProgress(progress);
+				}
+				return;
+			case STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE:
+				if (mStatePhase != STATE_PHASE_0) {
+					setPendingProgress(progress);
+					return;
+				}
+				mState = STATE_ANIM_PROGRESS;
+				break;
+		}
+
+		setState(STATE_ANIM_PROGRESS);
+		mProgressArcInitialAngle = mProgressArcCurrentAngle > NEAR_ZERO ? mProgressArcCurrentAngle : ARC_INITIAL_DEGREES;
+		mProgress = progress;
+	}
+
+	private void setPendingProgress(float progress) {
+		mPendingState = STATE_ANIM_PROGRESS;
+		mPendingProgress = progress;
+	}
+
+	private void applyPendingState() {
+		int pendingState = mPendingState;
+		mPendingState = NO_PENDING_STATE;
+		if (pendingState == STATE_INDETERMINATE) {
+			setIndeterminate();
+		} else if (pendingState == STATE_ANIM_PROGRESS) {
+			setProgress(mPendingProgress);
+		}
+	}
+
+	/**
+	 * Lays out the model for a new view size
+	 *
+	 * @param width available width in pixels
+	 * @param height available height in pixels
+	 */
+	public void setSize(int width, int height) {
+		float previousCenterY = mCenterY;
+		float previousRadius = mRadius;
+
+		mCenterX = width * 0.5f;
+		mCenterY = height * 0.5f;
+
+		float radius = Math.min(mCenterX, mCenterY);
+		mRadius = radius;
+		mIndeterminateCircleMinimumRadius = radius * 0.8f;
+		mIndeterminateCircleDeltaRadius = radius - mIndeterminateCircleMinimumRadius;
+
+		mProgressArcLeft = mCenterX - radius + mProgressStrokeWidth;
+		mProgressArcRight = mCenterX + radius - mProgressStrokeWidth;
+		mProgressArcTop = mCenterY - radius + mProgressStrokeWidth;
+		mProgressArcBottom = mCenterY + radius - mProgressStrokeWidth;
+
+		mIndeterminateCircleTargetRadius = (mProgressStrokeWidth * 0.5f);
+
+		if (mSnapshotGeometryPending) {
+			mSnapshotGeometryPending = false;
+			resolveCircleGeometry(0, 1);
+		} else if (previousRadius > 0) {
+			// Keeps an in-flight circle at the same relative position
+			normalizeCircleGeometry(previousCenterY, previousRadius);
+			resolveCircleGeometry(0, 1);
+		} else {
+			mIndeterminateCircleCurrentY = mCenterY;
+		}
+		updateArcs();
+	}
+
+	/**
+	 * Makes the circle values relative to the given center and radius
+	 */
+	private void normalizeCircleGeometry(float centerY, float radius) {
+		mIndeterminateCircleInitialY = (mIndeterminateCircleInitialY - centerY) / radius;
+		mIndeterminateCircleCurrentY = (mIndeterminateCircleCurrentY - centerY) / radius;
+		mIndeterminateCircleInitialRadius /= radius;
+		mIndeterminateCircleCurrentRadius /= radius;
+	}
+
+	/**
+	 * Turns circle values made relative by {@link #normalizeCircleGeometry(float, float)} into pixels of the current
+	 * size
+	 */
+	private void resolveCircleGeometry(float centerY, float radius) {
+		float scale = mRadius / radius;
+		mIndeterminateCircleInitialY = mCenterY + (mIndeterminateCircleInitialY - centerY) * scale;
+		mIndeterminateCircleCurrentY = mCenterY + (mIndeterminateCircleCurrentY - centerY) * scale;
+		mIndeterminateCircleInitialRadius *= scale;
+		mIndeterminateCircleCurrentRadius *= scale;
+	}
+
+	/**
+	 * Advances the animation and recomputes the render values. Time is kept in nanoseconds so frame intervals of high
+	 * refresh rate displays are not rounded.
+	 *
+	 * @param elapsedTimeInNanos time since the last frame
+	 */
+	public void update(long elapsedTimeInNanos) {
+		mAnimationAbsoluteTime += elapsedTimeInNanos;
+		switch (mState) {
+			case STATE_INDETERMINATE:
+				updateIndeterminateAnim();
+				break;
+			case STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS:
+				updateTransitionFromIndeterminateToProgress(elapsedTimeInNanos);
+				break;
+			case STATE_ANIM_PROGRESS:
+				updateProgress(elapsedTimeInNanos);
+				break;
+			case STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE:
+				updateTransitionFromProgressToIndeterminate(elapsedTimeInNanos);
+				break;
+		}
+		updateArcs();
+	}
+
+	private void updateIndeterminateAnim() {
+		float duration = INDETERMINATE_ANIMATION_DURATION * mDurationScale;
+		if (duration <= 0) {
+			mAnimationAbsoluteTime = 0;
+			mIndeterminateCircleDirection = 1;
+			mIndeterminateCircleCurrentRadius = mIndeterminateCircleMinimumRadius;
+			return;
+		}
+
+		while (mAnimationAbsoluteTime > duration) {
+			mIndeterminateCircleDirection = -mIndeterminateCircleDirection;
+			mAnimationAbsoluteTime -= duration;
+		}
+
+		float initialValue = mIndeterminateCircleMinimumRadius;
+		float finalValue = mIndeterminateCircleMinimumRadius;
+		if (mIndeterminateCircleDirection > 0) {
+			finalValue += mIndeterminateCircleDeltaRadius;
+		} else {
+			initialValue += mIndeterminateCircleDeltaRadius;
+		}
+		mIndeterminateCircleCurrentRadius = interpolateAccelerateAnimation(INDETERMINATE_ANIMATION_DURATION,
+				initialValue,
+				finalValue);
+	}
+
+	private void updateTransitionFromIndeterminateToProgress(long elapsedTimeInNanos) {
+		switch (mStatePhase) {
+			case STATE_PHASE_0:
+				initAnimationStateToTransitionFromIndeterminateToProgress(elapsedTimeInNanos);
+			case STATE_PHASE_1:
+				reduceRadiusToProgressCircleWidth(elapsedTimeInNanos);
+				break;
+			case STATE_PHASE_2:
+				moveCircleToArcInitialPoint(elapsedTimeInNanos);
+				break;
+			case STATE_PHASE_3:
+				expandPendingAndCurrentProgressArcs(elapsedTimeInNanos);
+				break;
+			case STATE_PHASE_4:
+				transitionToProgressState(elapsedTimeInNanos);
+				break;
+		}
+	}
+
+	private void initAnimationStateToTransitionFromIndeterminateToProgress(long elapsedTimeInNanos) {
+		mAnimationAbsoluteTime = elapsedTimeInNanos;
+		mIndeterminateCircleInitialRadius = mIndeterminateCircleCurrentRadius;
+		mPendingArcInitial = ARC_INITIAL_DEGREES;
+		mStatePhase = STATE_PHASE_1;
+	}
+
+	private void reduceRadiusToProgressCircleWidth(long elapsedTimeInNanos) {
+		mIndeterminateCircleCurrentRadius = interpolateAccelerateDecelerateAnimation(REDUCE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
+				mIndeterminateCircleInitialRadius,
+				mIndeterminateCircleTargetRadius);
+
+		if (isAnimationPhaseFinished()) {
+			mIndeterminateCircleCurrentRadius = mIndeterminateCircleTargetRadius;
+			mIndeterminateCircleInitialY = mIndeterminateCircleCurrentY;
+			mStatePhase = STATE_PHASE_2;
+			mAnimationAbsoluteTime = 0;
+			updateTransitionFromIndeterminateToProgress(elapsedTimeInNanos);
+		}
+	}
+
+	private void moveCircleToArcInitialPoint(long elapsedTimeInNanos) {
+		mIndeterminateCircleCurrentY = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
+				mIndeterminateCircleInitialY,
+				mProgressArcTop);
+
+		if (isAnimationPhaseFinished()) {
+			mIndeterminateCircleCurrentY = mProgressArcTop;
+			mStatePhase = STATE_PHASE_3;
+			mAnimationAbsoluteTime = 0;
+			updateTransitionFromIndeterminateToProgress(elapsedTimeInNanos);
+		}
+	}
+
+	private void expandPendingAndCurrentProgressArcs(long elapsedTimeInNanos) {
+		mPendingArcCurrent = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
+				mPendingArcInitial,
+				ARC_TARGET_DEGREES);
+		updateProgress(elapsedTimeInNanos);
+
+		if (isAnimationPhaseFinished()) {
+			mPendingArcCurrent = ARC_TARGET_DEGREES;
+			mStatePhase = STATE_PHASE_4;
+			mAnimationAbsoluteTime = 0;
+			updateTransitionFromIndeterminateToProgress(elapsedTimeInNanos);
+		}
+	}
+
+	private void transitionToProgressState(long elapsedTimeInNanos) {
+		if (mListener != null) {
+			mListener.onTransitionToProgressEnd();
+		}
+		setState(STATE_ANIM_PROGRESS);
+		mIndeterminateCircleCurrentRadius = -1;
+		updateProgress(elapsedTimeInNanos);
+		applyPendingState();
+	}
+
+	private void updateProgress(long elapsedTimeInNanos) {
+		mProgressAnimationAbsoluteTime += elapsedTimeInNanos;
+		// Long frames may step past the end of the tween, where curves keep going beyond the target
+		float animationRelativeProgress = Math.min(1.0f, getRelativeTime(mProgressAnimationAbsoluteTime,
+				UPDATE_PROGRESS_ANIMATION_DURATION));
+		if (finishProgressAnimationIfReached()) {
+			return;
+		}
+
+		float progressToAnimate = mAccelerateInterpolator.getInterpolation(animationRelativeProgress);
+		mProgressArcCurrentAngle = ((mProgress - mProgressArcInitialAngle) * progressToAnimate) + mProgressArcInitialAngle;
+		if (animationRelativeProgress >= 1.0f) {
+			mProgressArcCurrentAngle = mProgress;
+		} else if (Math.abs(mProgressArcCurrentAngle - mProgress) < NEAR_ZERO) {
+			if (mProgressArcInitialAngle < mProgress) {
+				mProgressArcCurrentAngle = mProgress;
+			} else if (mProgress < mProgressArcInitialAngle) {
+				mProgressArcCurrentAngle = mProgress;
+			}
+		}
+		finishProgressAnimationIfReached();
+	}
+
+	private boolean finishProgressAnimationIfReached() {
+		if (mState != STATE_ANIM_PROGRESS || Math.abs(mProgressArcCurrentAngle - mProgress) >= NEAR_ZERO) {
+			return false;
+		}
+		if (mListener != null) {
+			mListener.onProgressEnd();
+		}
+		setState(STATE_PROGRESS);
+		return true;
+	}
+
+	private void updateTransitionFromProgressToIndeterminate(long elapsedTimeInNanos) {
+		switch (mStatePhase) {
+			case STATE_PHASE_0:
+				initAnimationStateToTransitionFromProgressToIndeterminate();
+			case STATE_PHASE_1:
+				reducePendingAndProgressArc(elapsedTimeInNanos);
+				break;
+			case STATE_PHASE_2:
+				moveIndeterminateCircleToCenter(elapsedTimeInNanos);
+				break;
+			case STATE_PHASE_3:
+				expandIndeterminateCircle(elapsedTimeInNanos);
+				break;
+			case STATE_PHASE_4:
+				transitionToIndeterminateState();
+				break;
+		}
+	}
+
+	private void initAnimationStateToTransitionFromProgressToIndeterminate() {
+		mProgress = 0;
+		mProgressArcInitialAngle = ARC_INITIAL_DEGREES;
+		mPendingArcInitial = mPendingArcCurrent;
+		mStatePhase = STATE_PHASE_1;
+	}
+
+	private void reducePendingAndProgressArc(long elapsedTimeInNanos) {
+		mPendingArcCurrent = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
+				mPendingArcInitial,
+				ARC_INITIAL_DEGREES);
+		updateProgress(elapsedTimeInNanos);
+
+		if (isAnimationPhaseFinished()) {
+			mPendingArcCurrent = ARC_INITIAL_DEGREES;
+			mStatePhase = STATE_PHASE_2;
+			mAnimationAbsoluteTime = 0;
+			mIndeterminateCircleCurrentRadius = mIndeterminateCircleTargetRadius;
+			updateTransitionFromProgressToIndeterminate(elapsedTimeInNanos);
+		}
+	}
+
+	private void moveIndeterminateCircleToCenter(long elapsedTimeInNanos) {
+		mIndeterminateCircleCurrentY = interpolateAccelerateDecelerateAnimation(MOVE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
+				mProgressArcTop,
+				mCenterY);
+
+		if (isAnimationPhaseFinished()) {
+			mIndeterminateCircleCurrentY = mCenterY;
+			mStatePhase = STATE_PHASE_3;
+			mAnimationAbsoluteTime = 0;
+			updateTransitionFromProgressToIndeterminate(elapsedTimeInNanos);
+		}
+	}
+
+	private void expandIndeterminateCircle(long elapsedTimeInNanos) {
+		mIndeterminateCircleCurrentRadius = interpolateAccelerateDecelerateAnimation(REDUCE_INDETERMINATE_CIRCLE_TO_PROGRESS_DURATION,
+				mIndeterminateCircleTargetRadius,
+				mIndeterminateCircleMinimumRadius);
+
+		if (isAnimationPhaseFinished()) {
+			mIndeterminateCircleCurrentRadius = mIndeterminateCircleMinimumRadius;
+			mIndeterminateCircleInitialY = mCenterY;
+			mStatePhase = STATE_PHASE_4;
+			mAnimationAbsoluteTime = 0;
+			updateTransitionFromProgressToIndeterminate(elapsedTimeInNanos);
+		}
+	}
+
+	private void transitionToIndeterminateState() {
+		if (mListener != null) {
+			mListener.onTransitionToIndeterminateEnd();
+		}
+		setState(STATE_INDETERMINATE);
+		updateIndeterminateAnim();
+		applyPendingState();
+	}
+
+	private boolean isAnimationPhaseFinished() {
+		return mRelativeProgress >= 1.0f;
+	}
+
+	private float interpolateAccelerateDecelerateAnimation(float animationDuration,
+			float initialValue,
+			float finalValue) {
+		return interpolateAnimation(animationDuration, initialValue, finalValue, mAccelerateDecelerateInterpolator);
+	}
+
+	private float interpolateAccelerateAnimation(float animationDuration,
+			float initialValue,
+			float finalValue) {
+		return interpolateAnimation(animationDuration, initialValue, finalValue, mAccelerateInterpolator);
+	}
+
+	private float interpolateAnimation(float animationDuration, float initialValue, float finalValue, Easing interpolator) {
+		mRelativeProgress = getRelativeTime(mAnimationAbsoluteTime, animationDuration);
+		float interpolatedProgress = interpolator.getInterpolation(mRelativeProgress);
+		float totalMovementNeeded = finalValue - initialValue;
+		return initialValue + (interpolatedProgress * totalMovementNeeded);
+	}
+
+	/**
+	 * @return fraction of the scaled duration elapsed, 1 if the durations are scaled to 0
+	 */
+	private float getRelativeTime(long timeInNanos, float duration) {
+		float scaledDuration = duration * mDurationScale;
+		return scaledDuration > 0 ? timeInNanos / scaledDuration : 1.0f;
+	}
+
+	private void setState(int newState) {
+		switch (mState) {
+			case STATE_PROGRESS:
+			case STATE_ANIM_PROGRESS:
+				switch (newState) {
+					case STATE_INDETERMINATE:
+						newState = STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE;
+						mStatePhase = STATE_PHASE_0;
+						mAnimationAbsoluteTime = 0;
+						break;
+				}
+				mProgressAnimationAbsoluteTime = 0;
+				break;
+			case STATE_INDETERMINATE:
+				switch (newState) {
+					case STATE_INDETERMINATE:
+						return;
+					case STATE_ANIM_PROGRESS:
+					case STATE_PROGRESS:
+						//Pulse time is kept until the transition starts, so it can be cancelled seamlessly
+						newState = STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS;
+						mStatePhase = STATE_PHASE_0;
+						break;
+				}
+				break;
+			case STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS:
+			case STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE:
+				if (!isAnimationPhaseFinished()) {
+					return;
+				}
+				mAnimationAbsoluteTime = 0;
+				break;
+		}
+
+		mState = newState;
+	}
+
+	/**
+	 * Computes the arcs render values from the current progress angle. Called at the end of every update.
+	 *
+	 * Each segment is a lap of the ring drawn over the previous ones, so at most two arcs are visible: the current
+	 * segment and, over the rest of the ring, the previous segment or the pending arc during the first one. Empty
+	 * arcs paint nothing and are skipped.
+	 */
+	void updateArcs() {
+		float progress = mProgressArcCurrentAngle;
+		// A lap boundary belongs to the segment it completes
+		int segment = progress > 0 ? (int) Math.ceil(progress) - 1 : 0;
+		if (segment >= mSegmentCount) {
+			segment = mSegmentCount - 1;
+		}
+		float lapProgress = progress - segment;
+		boolean withProgress = isInStateWithProgress();
+
+		mVisibleArcCount = 0;
+
+		float remainingStartAngle = ARC_OFFSET_DEGREES + (lapProgress * ARC_TARGET_DEGREES);
+		float remainingSweepAngle = (1.0f - lapProgress) * ARC_TARGET_DEGREES;
+		if (segment == 0) {
+			addArc(remainingStartAngle, Math.min(mPendingArcCurrent, remainingSweepAngle),
+					DrawTarget.PAINT_PROGRESS_PENDING);
+		} else if (lapProgress < 1.0f) {
+			if (withProgress && remainingSweepAngle < ARC_MINIMUM_SWEEP_DEGREES) {
+				remainingSweepAngle = ARC_MINIMUM_SWEEP_DEGREES;
+			}
+			addArc(remainingStartAngle, remainingSweepAngle, DrawTarget.PAINT_PROGRESS_SEGMENT + segment - 1);
+		}
+
+		float sweepAngle = lapProgress * ARC_TARGET_DEGREES;
+		if (withProgress && sweepAngle < ARC_MINIMUM_SWEEP_DEGREES) {
+			sweepAngle = ARC_MINIMUM_SWEEP_DEGREES;
+		}
+		addArc(ARC_OFFSET_DEGREES, sweepAngle, DrawTarget.PAINT_PROGRESS_SEGMENT + segment);
+	}
+
+	private void addArc(float startAngle, float sweepAngle, int paint) {
+		if (sweepAngle <= 0) {
+			return;
+		}
+		mArcStartAngles[mVisibleArcCount] = startAngle;
+		mArcSweepAngles[mVisibleArcCount] = sweepAngle;
+		mArcPaints[mVisibleArcCount] = paint;
+		mVisibleArcCount++;
+	}
+
+	/**
+	 * Issues the draw operations of the current frame
+	 *
+	 * @param target surface to draw on
+	 */
+	public void draw(DrawTarget target) {
+		if (isIndeterminateCircleVisible()) {
+			target.drawCircle(mCenterX, mIndeterminateCircleCurrentY, mIndeterminateCircleCurrentRadius,
+					DrawTarget.PAINT_INDETERMINATE);
+		}
+		for (int i = 0; i < mVisibleArcCount; i++) {
+			target.drawArc(mProgressArcLeft, mProgressArcTop, mProgressArcRight, mProgressArcBottom,
+					mArcStartAngles[i], mArcSweepAngles[i], mArcPaints[i]);
+		}
+	}
+
+	/**
+	 * Computes the area the current animation phase can draw to, so callers only need to redraw that region
+	 *
+	 * @param bounds receives left, top, right and bottom, in that order
+	 */
+	public void computeAnimationBounds(float[] bounds) {
+		switch (mState) {
+			case STATE_INDETERMINATE:
+				setIndeterminateCircleBounds(bounds);
+				break;
+			case STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS:
+				switch (mStatePhase) {
+					case STATE_PHASE_0:
+					case STATE_PHASE_1:
+						setIndeterminateCircleBounds(bounds);
+						break;
+					case STATE_PHASE_2:
+						setMovingCircleBounds(bounds);
+						break;
+					default:
+						setProgressArcBounds(bounds);
+						break;
+				}
+				break;
+			case STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE:
+				switch (mStatePhase) {
+					case STATE_PHASE_0:
+					case STATE_PHASE_1:
+						setProgressArcBounds(bounds);
+						break;
+					case STATE_PHASE_2:
+						setMovingCircleBounds(bounds);
+						break;
+					default:
+						setIndeterminateCircleBounds(bounds);
+						break;
+				}
+				break;
+			default:
+				setProgressArcBounds(bounds);
+				break;
+		}
+	}
+
+	private void setIndeterminateCircleBounds(float[] bounds) {
+		float radius = Math.max(mIndeterminateCircleMinimumRadius + mIndeterminateCircleDeltaRadius,
+				mIndeterminateCircleInitialRadius);
+		bounds[0] = mCenterX - radius;
+		bounds[1] = mCenterY - radius;
+		bounds[2] = mCenterX + radius;
+		bounds[3] = mCenterY + radius;
+	}
+
+	private void setMovingCircleBounds(float[] bounds) {
+		float radius = mIndeterminateCircleTargetRadius;
+		bounds[0] = mCenterX - radius;
+		bounds[1] = Math.min(mProgressArcTop, mCenterY) - radius;
+		bounds[2] = mCenterX + radius;
+		bounds[3] = Math.max(mProgressArcTop, mCenterY) + radius;
+	}
+
+	private void setProgressArcBounds(float[] bounds) {
+		float halfStrokeWidth = mProgressStrokeWidth * 0.5f;
+		bounds[0] = mProgressArcLeft - halfStrokeWidth;
+		bounds[1] = mProgressArcTop - halfStrokeWidth;
+		bounds[2] = mProgressArcRight + halfStrokeWidth;
+		bounds[3] = mProgressArcBottom + halfStrokeWidth;
+	}
+
+	private boolean isInStateWithProgress() {
+		return mState == STATE_ANIM_PROGRESS || mState == STATE_PROGRESS;
+	}
+
+	/**
+	 * @return true if the model shows, or is transitioning to show, the progress arcs
+	 */
+	public boolean isHeadingToProgress() {
+		if (mPendingState != NO_PENDING_STATE) {
+			return mPendingState == STATE_ANIM_PROGRESS;
+		}
+		return mState != STATE_INDETERMINATE && mState != STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE;
+	}
+
+	public boolean isAnimationInProgress() {
+		return mState != STATE_PROGRESS && (mState != STATE_INDETERMINATE || mDurationScale > 0);
+	}
+
+	/**
+	 * Position in the indeterminate pulse: the circle grows from the minimum to the maximum radius while the position
+	 * goes from 0 to 1 and shrinks back from 1 to 2
+	 */
+	public float getIndeterminatePulsePosition() {
+		float duration = INDETERMINATE_ANIMATION_DURATION * mDurationScale;
+		float position = duration > 0 ? mAnimationAbsoluteTime / duration : 0;
+		return mIndeterminateCircleDirection > 0 ? position : 1.0f + position;
+	}
+
+	/**
+	 * @return time the indeterminate circle takes to grow or to shrink, in nanoseconds, before the
+	 * {@link #setDurationScale(float) duration scale} is applied
+	 */
+	public long getIndeterminatePulseDuration() {
+		return (long) INDETERMINATE_ANIMATION_DURATION;
+	}
+
+	public float getIndeterminatePulseMinimumRadius() {
+		return mIndeterminateCircleMinimumRadius;
+	}
+
+	public float getIndeterminatePulseMaximumRadius() {
+		return mIndeterminateCircleMinimumRadius + mIndeterminateCircleDeltaRadius;
+	}
+
+	public int getState() {
+		return mState;
+	}
+
+	public int getStatePhase() {
+		return mStatePhase;
+	}
+
+	public float getProgressArcCurrentAngle() {
+		return mProgressArcCurrentAngle;
+	}
+
+	public boolean isIndeterminateCircleVisible() {
+		return mIndeterminateCircleCurrentRadius > 0;
+	}
+
+	public float getIndeterminateCircleX() {
+		return mCenterX;
+	}
+
+	public float getIndeterminateCircleY() {
+		return mIndeterminateCircleCurrentY;
+	}
+
+	public float getIndeterminateCircleRadius() {
+		return mIndeterminateCircleCurrentRadius;
+	}
+
+	public float getProgressArcLeft() {
+		return mProgressArcLeft;
+	}
+
+	public float getProgressArcTop() {
+		return mProgressArcTop;
+	}
+
+	public float getProgressArcRight() {
+		return mProgressArcRight;
+	}
+
+	public float getProgressArcBottom() {
+		return mProgressArcBottom;
+	}
+
+	/**
+	 * @return number of arcs drawn in the current frame, at most {@link #MAX_VISIBLE_ARCS}
+	 */
+	public int getVisibleArcCount() {
+		return mVisibleArcCount;
+	}
+
+	public float getArcStartAngle(int arc) {
+		return mArcStartAngles[arc];
+	}
+
+	public float getArcSweepAngle(int arc) {
+		return mArcSweepAngles[arc];
+	}
+
+	/**
+	 * @return {@link DrawTarget} paint of the arc
+	 */
+	public int getArcPaint(int arc) {
+		return mArcPaints[arc];
+	}
+
+	/**
+	 * Writes the whole animation state, so {@link #restoreSnapshot(double[])} resumes on the same frame. Circle values
+	 * are stored relative to the size, so the snapshot can be restored on a view of a different size.
+	 *
+	 * @param snapshot array of at least {@link #SNAPSHOT_SIZE} elements
+	 */
+	public void saveSnapshot(double[] snapshot) {
+		boolean resolved = !mSnapshotGeometryPending && mRadius > 0;
+		float centerY = resolved ? mCenterY : 0;
+		float radius = resolved ? mRadius : 1;
+		int i = 0;
+		snapshot[i++] = mState;
+		snapshot[i++] = mStatePhase;
+		snapshot[i++] = mAnimationAbsoluteTime;
+		snapshot[i++] = mProgressAnimationAbsoluteTime;
+		snapshot[i++] = mRelativeProgress;
+		snapshot[i++] = mProgress;
+		snapshot[i++] = mProgressArcInitialAngle;
+		snapshot[i++] = mProgressArcCurrentAngle;
+		snapshot[i++] = mPendingArcInitial;
+		snapshot[i++] = mPendingArcCurrent;
+		snapshot[i++] = mPendingState;
+		snapshot[i++] = mPendingProgress;
+		snapshot[i++] = mIndeterminateCircleDirection;
+		snapshot[i++] = mIndeterminateCircleInitialRadius / radius;
+		snapshot[i++] = mIndeterminateCircleCurrentRadius / radius;
+		snapshot[i++] = (mIndeterminateCircleInitialY - centerY) / radius;
+		snapshot[i] = (mIndeterminateCircleCurrentY - centerY) / radius;
+	}
+
+	/**
+	 * Resumes the animation on the frame written by {@link #saveSnapshot(double[])}. Nothing is replayed: render
+	 * values are recomputed at once and the next update continues from the saved time.
+	 */
+	public void restoreSnapshot(double[] snapshot) {
+		int i = 0;
+		mState = (int) snapshot[i++];
+		mStatePhase = (int) snapshot[i++];
+		mAnimationAbsoluteTime = (long) snapshot[i++];
+		mProgressAnimationAbsoluteTime = (long) snapshot[i++];
+		mRelativeProgress = (float) snapshot[i++];
+		mProgress = (float) snapshot[i++];
+		mProgressArcInitialAngle = (float) snapshot[i++];
+		mProgressArcCurrentAngle = (float) snapshot[i++];
+		mPendingArcInitial = (float) snapshot[i++];
+		mPendingArcCurrent = (float) snapshot[i++];
+		mPendingState = (int) snapshot[i++];
+		mPendingProgress = (float) snapshot[i++];
+		mIndeterminateCircleDirection = (int) snapshot[i++];
+		mIndeterminateCircleInitialRadius = (float) snapshot[i++];
+		mIndeterminateCircleCurrentRadius = (float) snapshot[i++];
+		mIndeterminateCircleInitialY = (float) snapshot[i++];
+		mIndeterminateCircleCurrentY = (float) snapshot[i];
+
+		mSnapshotGeometryPending = mRadius <= 0;
+		if (!mSnapshotGeometryPending) {
+			resolveCircleGeometry(0, 1);
+		}
+		updateArcs();
+	}
+
+	/**
+	 * Jumps to the end of any running animation: the progress arc is shown at the latest requested progress, or the
+	 * indeterminate pulse starts over. No listener is notified.
+	 */
+	public void settle() {
+		boolean headingToProgress = isHeadingToProgress();
+		float progress = getProgress();
+
+		mPendingState = NO_PENDING_STATE;
+		mStatePhase = STATE_PHASE_0;
+		mAnimationAbsoluteTime = 0;
+		mProgressAnimationAbsoluteTime = 0;
+		mRelativeProgress = 0;
+		mSnapshotGeometryPending = false;
+		mIndeterminateCircleDirection = 1;
+		mIndeterminateCircleCurrentY = mCenterY;
+		mIndeterminateCircleInitialY = mCenterY;
+		mIndeterminateCircleInitialRadius = 0;
+
+		if (headingToProgress) {
+			mState = STATE_PROGRESS;
+			mProgress = progress;
+			mProgressArcInitialAngle = progress;
+			mProgressArcCurrentAngle = progress;
+			mPendingArcInitial = ARC_TARGET_DEGREES;
+			mPendingArcCurrent = ARC_TARGET_DEGREES;
+			mIndeterminateCircleCurrentRadius = -1;
+		} else {
+			mState = STATE_INDETERMINATE;
+			mProgress = 0;
+			mProgressArcInitialAngle = ARC_INITIAL_DEGREES;
+			mProgressArcCurrentAngle = ARC_INITIAL_DEGREES;
+			mPendingArcInitial = ARC_INITIAL_DEGREES;
+			mPendingArcCurrent = ARC_INITIAL_DEGREES;
+			mIndeterminateCircleCurrentRadius = mIndeterminateCircleMinimumRadius;
+		}
+		updateArcs();
+	}
+
+	public interface Listener {
+		void onTransitionToIndeterminateEnd();
+
+		void onTransitionToProgressEnd();
+
+		void onProgressEnd();
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+
+/**
+ * Draw code shared by the widgets showing a {@link CircleProgressModel}, drawing with the paints of a shared
+ * {@link CircleProgressStyle}
+ */
+final class CircleProgressRenderer {
+
+	static final int DEFAULT_INDETERMINATE_COLOR = 0xFF00FF00;
+	static final int DEFAULT_PROGRESS_PENDING_COLOR = 0x6000FF00;
+	static final int DEFAULT_PROGRESS_FIRST_PHASE_COLOR = 0xFF0000FF;
+	static final int DEFAULT_PROGRESS_SECOND_PHASE_COLOR = 0xFFFF0000;
+	static final float DEFAULT_PROGRESS_STROKE_WIDTH = 16;
+
+	private static final int OPAQUE = 255;
+
+	private final CircleProgressStyle mStyle;
+	private final CanvasDrawTarget mDrawTarget;
+
+	private Paint[] mPaints;
+	private Paint mIndeterminateSpritePaint;
+	private boolean mMutated;
+	private CircleSpriteAtlas mCircleSprites;
+
+	CircleProgressRenderer(CircleProgressStyle style) {
+		mStyle = style;
+		mPaints = style.getPaints();
+		mIndeterminateSpritePaint = style.getIndeterminateSpritePaint();
+		mDrawTarget = new CanvasDrawTarget(mPaints);
+	}
+
+	CircleProgressStyle getStyle() {
+		return mStyle;
+	}
+
+	Paint getIndeterminatePaint() {
+		return mPaints[DrawTarget.PAINT_INDETERMINATE];
+	}
+
+	/**
+	 * Blits the indeterminate circle from pre-rasterized sprites instead of rasterizing it on every frame
+	 *
+	 * @param circleSprites atlas covering every radius the circle takes or null to rasterize it
+	 */
+	void setCircleSprites(CircleSpriteAtlas circleSprites) {
+		mCircleSprites = circleSprites;
+		mDrawTarget.setCircleSprites(circleSprites, mIndeterminateSpritePaint);
+	}
+
+	/**
+	 * Draws the current frame of the model
+	 */
+	void draw(Canvas canvas, CircleProgressModel model) {
+		mDrawTarget.setCanvas(canvas);
+		model.draw(mDrawTarget);
+		mDrawTarget.setCanvas(null);
+	}
+
+	/**
+	 * Modulates the alpha of every color
+	 *
+	 * @param alpha between 0 and 255
+	 */
+	void setAlpha(int alpha) {
+		mutate();
+		Paint[] sharedPaints = mStyle.getPaints();
+		for (int i = 0; i < mPaints.length; i++) {
+			mPaints[i].setAlpha(sharedPaints[i].getAlpha() * alpha / OPAQUE);
+		}
+		mIndeterminateSpritePaint.setAlpha(mStyle.getIndeterminateSpritePaint().getAlpha() * alpha / OPAQUE);
+	}
+
+	void setColorFilter(ColorFilter colorFilter) {
+		mutate();
+		for (Paint paint : mPaints) {
+			paint.setColorFilter(colorFilter);
+		}
+		mIndeterminateSpritePaint.setColorFilter(colorFilter);
+	}
+
+	/**
+	 * Switches from the shared paints of the style to private copies that can be changed
+	 */
+	private void mutate() {
+		if (mMutated) {
+			return;
+		}
+		mMutated = true;
+
+		Paint[] paints = new Paint[mPaints.length];
+		for (int i = 0; i < paints.length; i++) {
+			paints[i] = new Paint(mPaints[i]);
+		}
+		mPaints = paints;
+		mIndeterminateSpritePaint = new Paint(mIndeterminateSpritePaint);
+		mDrawTarget.setPaints(paints);
+		mDrawTarget.setCircleSprites(mCircleSprites, mIndeterminateSpritePaint);
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Colors and stroke width of a progress widget together with the paints drawing them.
+ *
+ * Styles are flyweights: every widget using the same values gets the same instance and the same paints, so
+ * inflating many widgets only builds paints once. Only the most recently obtained styles are cached, so styles
+ * animated or picked per item can't grow the cache; renderers keep theirs alive once evicted. Shared paints must
+ * never be modified; {@link CircleProgressRenderer} copies them before changing them.
+ */
+final class CircleProgressStyle {
+
+	private static final int MAX_CACHED_STYLES = 32;
+
+	private static final Map<CircleProgressStyle, CircleProgressStyle> sStyles =
+			new LinkedHashMap<CircleProgressStyle, CircleProgressStyle>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<CircleProgressStyle, CircleProgressStyle> eldest) {
+					return size() > MAX_CACHED_STYLES;
+				}
+			};
+
+	private final int mIndeterminateColor;
+	private final int mProgressPendingColor;
+	private final int[] mProgressSegmentColors;
+	private final float mProgressStrokeWidth;
+
+	private Paint[] mPaints;
+	private Paint mIndeterminateSpritePaint;
+
+	private CircleProgressStyle(int indeterminateColor,
+			int progressPendingColor,
+			int[] progressSegmentColors,
+			float progressStrokeWidth) {
+		mIndeterminateColor = indeterminateColor;
+		mProgressPendingColor = progressPendingColor;
+		mProgressSegmentColors = progressSegmentColors;
+		mProgressStrokeWidth = progressStrokeWidth;
+	}
+
+	/**
+	 * Returns the shared style for the given values, building its paints if needed
+	 */
+	static CircleProgressStyle obtain(int indeterminateColor,
+			int progressPendingColor,
+			int progressFirstPhaseColor,
+			int progressSecondPhaseColor,
+			float progressStrokeWidth) {
+		return obtain(indeterminateColor,
+				progressPendingColor,
+				new int[]{progressFirstPhaseColor, progressSecondPhaseColor},
+				progressStrokeWidth);
+	}
+
+	/**
+	 * Returns the shared style for the given values, building its paints if needed
+	 *
+	 * @param progressSegmentColors color of each progress segment, in order
+	 */
+	static synchronized CircleProgressStyle obtain(int indeterminateColor,
+			int progressPendingColor,
+			int[] progressSegmentColors,
+			float progressStrokeWidth) {
+		CircleProgressStyle key = new CircleProgressStyle(indeterminateColor,
+				progressPendingColor,
+				progressSegmentColors.clone(),
+				progressStrokeWidth);
+
+		CircleProgressStyle style = sStyles.get(key);
+		if (style == null) {
+			style = key;
+			style.buildPaints();
+			sStyles.put(style, style);
+		}
+		return style;
+	}
+
+	private void buildPaints() {
+		Paint indeterminatePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		indeterminatePaint.setColor(mIndeterminateColor);
+		indeterminatePaint.setStyle(Style.FILL);
+
+		mPaints = new Paint[DrawTarget.PAINT_PROGRESS_SEGMENT + mProgressSegmentColors.length];
+		mPaints[DrawTarget.PAINT_INDETERMINATE] = indeterminatePaint;
+		mPaints[DrawTarget.PAINT_PROGRESS_PENDING] = buildProgressPaint(mProgressPendingColor, mProgressStrokeWidth);
+		for (int i = 0; i < mProgressSegmentColors.length; i++) {
+			mPaints[DrawTarget.PAINT_PROGRESS_SEGMENT + i] = buildProgressPaint(mProgressSegmentColors[i],
+					mProgressStrokeWidth);
+		}
+
+		mIndeterminateSpritePaint = new Paint(indeterminatePaint);
+		mIndeterminateSpritePaint.setFilterBitmap(true);
+	}
+
+	static Paint buildProgressPaint(int color, float strokeWidth) {
+		Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paint.setColor(color);
+		paint.setStyle(Style.STROKE);
+		paint.setStrokeCap(Paint.Cap.ROUND);
+		paint.setStrokeWidth(strokeWidth);
+		return paint;
+	}
+
+	/**
+	 * @return shared paints indexed by the {@link DrawTarget} PAINT_* constants
+	 */
+	Paint[] getPaints() {
+		return mPaints;
+	}
+
+	/**
+	 * @return shared paint blitting indeterminate circle sprites
+	 */
+	Paint getIndeterminateSpritePaint() {
+		return mIndeterminateSpritePaint;
+	}
+
+	int getProgressSegmentCount() {
+		return mProgressSegmentColors.length;
+	}
+
+	float getProgressStrokeWidth() {
+		return mProgressStrokeWidth;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof CircleProgressStyle)) {
+			return false;
+		}
+
+		CircleProgressStyle style = (CircleProgressStyle) o;
+		return mIndeterminateColor == style.mIndeterminateColor
+				&& mProgressPendingColor == style.mProgressPendingColor
+				&& Arrays.equals(mProgressSegmentColors, style.mProgressSegmentColors)
+				&& Float.compare(mProgressStrokeWidth, style.mProgressStrokeWidth) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = mIndeterminateColor;
+		result = 31 * result + mProgressPendingColor;
+		result = 31 * result + Arrays.hashCode(mProgressSegmentColors);
+		result = 31 * result + Float.floatToIntBits(mProgressStrokeWidth);
+		return result;
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pre-rasterized anti-aliased filled circles, so the indeterminate circle is blitted instead of rasterized on every
+ * frame.
+ *
+ * Circles are rendered once, as an alpha mask tinted by the paint at draw time, at radii at most 12.5% apart between
+ * the smallest and the largest radius the circle takes. Each frame draws the closest
+ * larger sprite scaled down to the exact radius. Atlases are shared by every view with the same radii, whatever its
+ * colors, and kept in a process wide LRU cache bounded in bytes that is emptied when the system asks to trim memory.
+ * Atlases that wouldn't fit in the cache on their own are never rendered, and the circle is rasterized instead.
+ * Must only be used from the main thread.
+ */
+final class CircleSpriteAtlas {
+
+	static final int DEFAULT_MAX_CACHE_SIZE_IN_BYTES = 1024 * 1024;
+
+	private static final double RADIUS_STEP = 1.125;
+	private static final int SPRITE_PADDING = 1;
+	private static final int MAX_OVERSIZED_KEYS = 16;
+
+	private static final LinkedHashMap<Long, CircleSpriteAtlas> sAtlases =
+			new LinkedHashMap<Long, CircleSpriteAtlas>(16, 0.75f, true);
+	private static final LinkedHashMap<Long, Boolean> sOversizedKeys = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+			return size() > MAX_OVERSIZED_KEYS;
+		}
+	};
+	private static int sMaxCacheSizeInBytes = DEFAULT_MAX_CACHE_SIZE_IN_BYTES;
+	private static int sCacheSizeInBytes;
+	private static boolean sTrimCallbacksRegistered;
+
+	private final int mWidth;
+	private final int mHeight;
+	private final float[] mRadii;
+	private final Rect[] mSprites;
+	private final RectF mDestination = new RectF();
+	private Bitmap mBitmap;
+
+	private CircleSpriteAtlas(int minRadius, int maxRadius) {
+		double ratio = (double) maxRadius / minRadius;
+		int levels = (int) Math.ceil(Math.log(ratio) / Math.log(RADIUS_STEP)) + 1;
+
+		mRadii = new float[levels];
+		mSprites = new Rect[levels];
+		for (int i = 0; i < levels - 1; i++) {
+			mRadii[i] = (float) (minRadius * Math.pow(ratio, (double) i / (levels - 1)));
+		}
+		mRadii[levels - 1] = maxRadius;
+
+		int atlasWidth = getSpriteSize(maxRadius) * 2;
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		for (int i = levels - 1; i >= 0; i--) {
+			int spriteSize = getSpriteSize(mRadii[i]);
+			if (x + spriteSize > atlasWidth) {
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			mSprites[i] = new Rect(x, y, x + spriteSize, y + spriteSize);
+			x += spriteSize;
+			shelfHeight = Math.max(shelfHeight, spriteSize);
+		}
+
+		mWidth = atlasWidth;
+		mHeight = y + shelfHeight;
+	}
+
+	private void render() {
+		mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ALPHA_8);
+		Canvas canvas = new Canvas(mBitmap);
+		Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		for (int i = 0; i < mRadii.length; i++) {
+			Rect sprite = mSprites[i];
+			canvas.drawCircle(sprite.left + sprite.width() * 0.5f, sprite.top + sprite.height() * 0.5f, mRadii[i], paint);
+		}
+	}
+
+	private static int getSpriteSize(float radius) {
+		return (int) Math.ceil(radius * 2) + SPRITE_PADDING * 2;
+	}
+
+	/**
+	 * Returns the shared atlas for the given radii, rendering it if it is not cached
+	 *
+	 * @param context any context, used to listen to memory trim callbacks
+	 * @param minRadius smallest radius the circle takes
+	 * @param maxRadius largest radius the circle takes
+	 * @return atlas or null if the radii are empty or the atlas is larger than the whole cache
+	 */
+	static CircleSpriteAtlas obtain(Context context, float minRadius, float maxRadius) {
+		int min = Math.max(1, (int) Math.floor(minRadius));
+		int max = (int) Math.ceil(maxRadius);
+		if (max < min) {
+			return null;
+		}
+
+		registerTrimCallbacks(context);
+		Long key = ((long) max << 32) | min;
+		CircleSpriteAtlas atlas = sAtlases.get(key);
+		if (atlas == null) {
+			if (sOversizedKeys.get(key) != null) {
+				return null;
+			}
+			atlas = new CircleSpriteAtlas(min, max);
+			if (atlas.getSizeInBytes() > sMaxCacheSizeInBytes) {
+				sOversizedKeys.put(key, Boolean.TRUE);
+				return null;
+			}
+			atlas.render();
+			sAtlases.put(key, atlas);
+			sCacheSizeInBytes += atlas.getSizeInBytes();
+			trimToSize(sMaxCacheSizeInBytes);
+		}
+		return atlas;
+	}
+
+	/**
+	 * Bounds the memory used by cached atlases. Atlases in use by a view are kept alive by it once evicted.
+	 *
+	 * @param maxSizeInBytes cache size
+	 */
+	static void setMaxCacheSize(int maxSizeInBytes) {
+		sMaxCacheSizeInBytes = maxSizeInBytes;
+		sOversizedKeys.clear();
+		trimToSize(maxSizeInBytes);
+	}
+
+	private static void trimToSize(int maxSizeInBytes) {
+		Iterator<Map.Entry<Long, CircleSpriteAtlas>> iterator = sAtlases.entrySet().iterator();
+		while (sCacheSizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+			sCacheSizeInBytes -= iterator.next().getValue().getSizeInBytes();
+			iterator.remove();
+		}
+	}
+
+	private static void registerTrimCallbacks(Context context) {
+		if (sTrimCallbacksRegistered || Build.VERSION.SDK_INT < VERSION_CODES.ICE_CREAM_SANDWICH) {
+			return;
+		}
+		Context applicationContext = context.getApplicationContext();
+		if (applicationContext != null) {
+			sTrimCallbacksRegistered = true;
+			TrimCallbacks.register(applicationContext);
+		}
+	}
+
+	private int getSizeInBytes() {
+		return mWidth * mHeight;
+	}
+
+	/**
+	 * Draws a filled circle tinted with the paint color
+	 *
+	 * @param paint paint with bitmap filtering enabled
+	 */
+	void drawCircle(Canvas canvas, float centerX, float centerY, float radius, Paint paint) {
+		int level = mRadii.length - 1;
+		while (level > 0 && mRadii[level - 1] >= radius) {
+			level--;
+		}
+
+		Rect sprite = mSprites[level];
+		float halfSize = sprite.width() * 0.5f * radius / mRadii[level];
+		mDestination.set(centerX - halfSize, centerY - halfSize, centerX + halfSize, centerY + halfSize);
+		canvas.drawBitmap(mBitmap, sprite, mDestination, paint);
+	}
+
+	@TargetApi(VERSION_CODES.ICE_CREAM_SANDWICH)
+	private static class TrimCallbacks implements ComponentCallbacks2 {
+
+		static void register(Context context) {
+			context.registerComponentCallbacks(new TrimCallbacks());
+		}
+
+		@Override
+		public void onTrimMemory(int level) {
+			if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW
+					|| level == TRIM_MEMORY_RUNNING_CRITICAL) {
+				trimToSize(0);
+			}
+		}
+
+		@Override
+		public void onLowMemory() {
+			trimToSize(0);
+		}
+
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * {@link ProgressSource} computed from a count of processed units, e.g. bytes, and their known total.
+ *
+ * The count is read through a {@link Counter}, so any existing counter can be exposed without copying it. On Java 8
+ * a {@code LongSupplier} can be adapted with {@code new CounterProgressSource(supplier::getAsLong, total)}.
+ */
+public class CounterProgressSource implements ProgressSource {
+
+	private final Counter mCounter;
+	private final long mTotal;
+
+	/**
+	 * @param counter current count, read from the main thread
+	 * @param total count that represents completion, or a negative value if it is not known
+	 */
+	public CounterProgressSource(Counter counter, long total) {
+		mCounter = counter;
+		mTotal = total;
+	}
+
+	@Override
+	public float getProgress() {
+		return toProgress(mCounter.getCount(), mTotal);
+	}
+
+	static float toProgress(long count, long total) {
+		if (total <= 0) {
+			return UNKNOWN_PROGRESS;
+		}
+		return Math.min(1.0f, (float) count / total);
+	}
+
+	public interface Counter {
+		long getCount();
+	}
+
+}
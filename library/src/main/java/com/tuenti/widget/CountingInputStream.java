@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} that counts the bytes read through it and exposes them as a {@link ProgressSource}. The read
+ * path only adds to a counter.
+ */
+public class CountingInputStream extends FilterInputStream implements ProgressSource {
+
+	private final long mTotalLength;
+
+	private volatile long mCount;
+	private long mMark = -1;
+
+	/**
+	 * @param in stream to read from
+	 * @param totalLength bytes expected to be read, or a negative value if it is not known
+	 */
+	public CountingInputStream(InputStream in, long totalLength) {
+		super(in);
+		mTotalLength = totalLength;
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+
+	@Override
+	public float getProgress() {
+		return CounterProgressSource.toProgress(mCount, mTotalLength);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = in.read();
+		if (result != -1) {
+			mCount++;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int result = in.read(buffer, offset, length);
+		if (result != -1) {
+			mCount += result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long byteCount) throws IOException {
+		long result = in.skip(byteCount);
+		mCount += result;
+		return result;
+	}
+
+	@Override
+	public synchronized void mark(int readLimit) {
+		in.mark(readLimit);
+		mMark = mCount;
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		if (!in.markSupported()) {
+			throw new IOException("Mark not supported");
+		}
+		if (mMark == -1) {
+			throw new IOException("Mark not set");
+		}
+		in.reset();
+		mCount = mMark;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link OutputStream} that counts the bytes written through it and exposes them as a {@link ProgressSource}. The
+ * write path only adds to a counter.
+ */
+public class CountingOutputStream extends FilterOutputStream implements ProgressSource {
+
+	private final long mTotalLength;
+
+	private volatile long mCount;
+
+	/**
+	 * @param out stream to write to
+	 * @param totalLength bytes expected to be written, or a negative value if it is not known
+	 */
+	public CountingOutputStream(OutputStream out, long totalLength) {
+		super(out);
+		mTotalLength = totalLength;
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+
+	@Override
+	public float getProgress() {
+		return CounterProgressSource.toProgress(mCount, mTotalLength);
+	}
+
+	@Override
+	public void write(int oneByte) throws IOException {
+		out.write(oneByte);
+		mCount++;
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int length) throws IOException {
+		out.write(buffer, offset, length);
+		mCount += length;
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * {@link ReadableByteChannel} that counts the bytes read through it and exposes them as a {@link ProgressSource}.
+ * The read path only adds to a counter.
+ */
+public class CountingReadableByteChannel implements ReadableByteChannel, ProgressSource {
+
+	private final ReadableByteChannel mChannel;
+	private final long mTotalLength;
+
+	private volatile long mCount;
+
+	/**
+	 * @param channel channel to read from
+	 * @param totalLength bytes expected to be read, or a negative value if it is not known
+	 */
+	public CountingReadableByteChannel(ReadableByteChannel channel, long totalLength) {
+		mChannel = channel;
+		mTotalLength = totalLength;
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+
+	@Override
+	public float getProgress() {
+		return CounterProgressSource.toProgress(mCount, mTotalLength);
+	}
+
+	@Override
+	public int read(ByteBuffer buffer) throws IOException {
+		int result = mChannel.read(buffer);
+		if (result > 0) {
+			mCount += result;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return mChannel.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		mChannel.close();
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Minimal drawing surface {@link CircleProgressModel} issues its draw operations to. Views forward them to a
+ * {@link android.graphics.Canvas}; tests can record them on a plain JVM.
+ */
+public interface DrawTarget {
+
+	int PAINT_INDETERMINATE = 0;
+	int PAINT_PROGRESS_PENDING = 1;
+
+	/**
+	 * Paint of the first progress segment, segment i is drawn with PAINT_PROGRESS_SEGMENT + i
+	 */
+	int PAINT_PROGRESS_SEGMENT = 2;
+	int PAINT_PROGRESS_FIRST_PHASE = PAINT_PROGRESS_SEGMENT;
+	int PAINT_PROGRESS_SECOND_PHASE = PAINT_PROGRESS_SEGMENT + 1;
+
+	/**
+	 * Draws a filled circle
+	 *
+	 * @param paint one of the PAINT_* constants
+	 */
+	void drawCircle(float centerX, float centerY, float radius, int paint);
+
+	/**
+	 * Draws a stroked arc with round caps inscribed in the given oval, angles in degrees
+	 *
+	 * @param paint one of the PAINT_* constants
+	 */
+	void drawArc(float left, float top, float right, float bottom, float startAngle, float sweepAngle, int paint);
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Android independent counterpart of {@link android.view.animation.Interpolator}, so animation curves can be
+ * evaluated on a plain JVM.
+ */
+public interface Easing {
+
+	/**
+	 * Same curve as {@link android.view.animation.DecelerateInterpolator} with its default factor
+	 */
+	Easing DECELERATE = new Easing() {
+		@Override
+		public float getInterpolation(float input) {
+			return 1.0f - (1.0f - input) * (1.0f - input);
+		}
+	};
+
+	/**
+	 * Same curve as {@link android.view.animation.AccelerateDecelerateInterpolator}
+	 */
+	Easing ACCELERATE_DECELERATE = new Easing() {
+		@Override
+		public float getInterpolation(float input) {
+			return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+		}
+	};
+
+	/**
+	 * Maps a value representing the elapsed fraction of an animation to a value that represents the interpolated
+	 * fraction
+	 *
+	 * @param input elapsed fraction, usually between 0 and 1
+	 * @return interpolated fraction
+	 */
+	float getInterpolation(float input);
+
+}
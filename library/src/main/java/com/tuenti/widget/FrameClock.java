@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Source of the frame timestamps an {@link AnimatedView} advances its animation with
+ */
+public interface FrameClock {
+
+	/**
+	 * Monotonic system clock
+	 */
+	FrameClock SYSTEM = new FrameClock() {
+		@Override
+		public long getFrameTimeInNanos() {
+			return System.nanoTime();
+		}
+	};
+
+	/**
+	 * @return timestamp of the frame being drawn, in nanoseconds. Only differences between timestamps are used.
+	 */
+	long getFrameTimeInNanos();
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Frame timings recorded by an {@link AnimatedView}, see {@link AnimatedView#setFrameMetrics(FrameMetrics)}.
+ *
+ * Durations are stored in fixed histograms with power of two buckets, so recording a frame never allocates.
+ * Bucket 0 holds durations under {@link #getBucketUpperBoundInNanos(int) 1024 ns}, each following bucket doubles the
+ * upper bound and the last one holds everything above. Must be used from the main thread.
+ */
+public class FrameMetrics {
+
+	public static final int BUCKET_COUNT = 16;
+	public static final int MAX_TRACKED_STATES = 8;
+
+	/**
+	 * Counts as jank every frame arriving more than two frame intervals after the previous one, whatever frame
+	 * rate the view runs at
+	 */
+	public static final long JANK_THRESHOLD_RELATIVE = 0;
+
+	private static final int FIRST_BUCKET_SHIFT = 10;
+	private static final int JANK_THRESHOLD_FRAME_INTERVALS = 2;
+
+	private final long[] mUpdateHistogram = new long[BUCKET_COUNT];
+	private final long[] mRenderHistogram = new long[BUCKET_COUNT];
+	private final long[] mTimeInStateInNanos = new long[MAX_TRACKED_STATES];
+
+	private long mJankThresholdInNanos;
+
+	private long mFramesDrawn;
+	private long mFramesUpdated;
+	private long mJankFrames;
+	private long mTotalUpdateTimeInNanos;
+	private long mTotalRenderTimeInNanos;
+	private long mMaxUpdateTimeInNanos;
+	private long mMaxRenderTimeInNanos;
+
+	public FrameMetrics() {
+		this(JANK_THRESHOLD_RELATIVE);
+	}
+
+	/**
+	 * @param jankThresholdInNanos frames whose elapsed time since the previous one exceeds this value are counted as
+	 * jank, or {@link #JANK_THRESHOLD_RELATIVE}
+	 */
+	public FrameMetrics(long jankThresholdInNanos) {
+		mJankThresholdInNanos = jankThresholdInNanos;
+	}
+
+	/**
+	 * @param elapsedTimeInNanos wall time since the previous frame
+	 * @param appliedTimeInNanos animation time the frame advanced, after clamping and quantization
+	 * @param frameIntervalInNanos interval the view targets, for the relative jank threshold
+	 */
+	void recordUpdate(long durationInNanos, long elapsedTimeInNanos, long appliedTimeInNanos,
+			long frameIntervalInNanos, int state) {
+		mFramesUpdated++;
+		mTotalUpdateTimeInNanos += durationInNanos;
+		mMaxUpdateTimeInNanos = Math.max(mMaxUpdateTimeInNanos, durationInNanos);
+		mUpdateHistogram[getBucket(durationInNanos)]++;
+
+		long jankThresholdInNanos = mJankThresholdInNanos > 0
+				? mJankThresholdInNanos
+				: frameIntervalInNanos * JANK_THRESHOLD_FRAME_INTERVALS;
+		if (elapsedTimeInNanos > jankThresholdInNanos) {
+			mJankFrames++;
+		}
+		if (state >= 0 && state < MAX_TRACKED_STATES) {
+			mTimeInStateInNanos[state] += appliedTimeInNanos;
+		}
+	}
+
+	void recordRender(long durationInNanos) {
+		mFramesDrawn++;
+		mTotalRenderTimeInNanos += durationInNanos;
+		mMaxRenderTimeInNanos = Math.max(mMaxRenderTimeInNanos, durationInNanos);
+		mRenderHistogram[getBucket(durationInNanos)]++;
+	}
+
+	private static int getBucket(long durationInNanos) {
+		int bucket = 64 - Long.numberOfLeadingZeros(durationInNanos >> FIRST_BUCKET_SHIFT);
+		return Math.min(bucket, BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * @return exclusive upper bound of the bucket, or {@link Long#MAX_VALUE} for the last one
+	 */
+	public static long getBucketUpperBoundInNanos(int bucket) {
+		if (bucket >= BUCKET_COUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+		return 1L << (FIRST_BUCKET_SHIFT + bucket);
+	}
+
+	/**
+	 * @return fixed jank threshold or {@link #JANK_THRESHOLD_RELATIVE}
+	 */
+	public long getJankThresholdInNanos() {
+		return mJankThresholdInNanos;
+	}
+
+	public void setJankThresholdInNanos(long jankThresholdInNanos) {
+		mJankThresholdInNanos = jankThresholdInNanos;
+	}
+
+	public long getFramesDrawn() {
+		return mFramesDrawn;
+	}
+
+	/**
+	 * @return frames that advanced the animation. Frames skipped by a frame rate cap are drawn but not updated.
+	 */
+	public long getFramesUpdated() {
+		return mFramesUpdated;
+	}
+
+	public long getJankFrames() {
+		return mJankFrames;
+	}
+
+	public long getTotalUpdateTimeInNanos() {
+		return mTotalUpdateTimeInNanos;
+	}
+
+	public long getTotalRenderTimeInNanos() {
+		return mTotalRenderTimeInNanos;
+	}
+
+	public long getMaxUpdateTimeInNanos() {
+		return mMaxUpdateTimeInNanos;
+	}
+
+	public long getMaxRenderTimeInNanos() {
+		return mMaxRenderTimeInNanos;
+	}
+
+	public long getUpdateCount(int bucket) {
+		return mUpdateHistogram[bucket];
+	}
+
+	public long getRenderCount(int bucket) {
+		return mRenderHistogram[bucket];
+	}
+
+	/**
+	 * @param state state reported by the view, see {@link AnimatedView#getAnimationState()}
+	 * @return animation time spent in the state
+	 */
+	public long getTimeInStateInNanos(int state) {
+		return mTimeInStateInNanos[state];
+	}
+
+	/**
+	 * Copies every value into another instance, e.g. to hand a snapshot to another thread
+	 */
+	public void copyTo(FrameMetrics metrics) {
+		System.arraycopy(mUpdateHistogram, 0, metrics.mUpdateHistogram, 0, BUCKET_COUNT);
+		System.arraycopy(mRenderHistogram, 0, metrics.mRenderHistogram, 0, BUCKET_COUNT);
+		System.arraycopy(mTimeInStateInNanos, 0, metrics.mTimeInStateInNanos, 0, MAX_TRACKED_STATES);
+		metrics.mJankThresholdInNanos = mJankThresholdInNanos;
+		metrics.mFramesDrawn = mFramesDrawn;
+		metrics.mFramesUpdated = mFramesUpdated;
+		metrics.mJankFrames = mJankFrames;
+		metrics.mTotalUpdateTimeInNanos = mTotalUpdateTimeInNanos;
+		metrics.mTotalRenderTimeInNanos = mTotalRenderTimeInNanos;
+		metrics.mMaxUpdateTimeInNanos = mMaxUpdateTimeInNanos;
+		metrics.mMaxRenderTimeInNanos = mMaxRenderTimeInNanos;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			mUpdateHistogram[i] = 0;
+			mRenderHistogram[i] = 0;
+		}
+		for (int i = 0; i < MAX_TRACKED_STATES; i++) {
+			mTimeInStateInNanos[i] = 0;
+		}
+		mFramesDrawn = 0;
+		mFramesUpdated = 0;
+		mJankFrames = 0;
+		mTotalUpdateTimeInNanos = 0;
+		mTotalRenderTimeInNanos = 0;
+		mMaxUpdateTimeInNanos = 0;
+		mMaxRenderTimeInNanos = 0;
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Receives the frame metrics recorded by an {@link AnimatedView} periodically, see
+ * {@link AnimatedView#setFrameMetricsListener(FrameMetricsListener, int)}.
+ */
+public interface FrameMetricsListener {
+
+	/**
+	 * Called on the main thread. The metrics instance keeps being updated after this call returns, use
+	 * {@link FrameMetrics#copyTo(FrameMetrics)} to keep a snapshot.
+	 *
+	 * @param view view that recorded the metrics
+	 * @param metrics metrics recorded so far
+	 */
+	void onFrameMetrics(AnimatedView view, FrameMetrics metrics);
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+
+/**
+ * Process wide frame source shared by every attached {@link AnimatedView}.
+ *
+ * Views register when they are attached to a window and ask for the next frame once they have been drawn. All
+ * pending requests are served by a single vsync callback, so every animating view is invalidated in the same pass
+ * and sees the same frame timestamp. Must only be used from the main thread.
+ */
+final class FrameTicker implements FrameClock {
+
+	private static final long DEFAULT_FRAME_INTERVAL_IN_NANOS = 16666667;
+	private static final long NANOSECONDS_IN_SECOND = 1000000000L;
+	private static final int NANOSECONDS_IN_MILLISECOND = 1000000;
+	private static final float MINIMUM_REFRESH_RATE = 10;
+
+	private static FrameTicker sInstance;
+
+	private final ArrayList<AnimatedView> mViews = new ArrayList<AnimatedView>();
+	private final FrameScheduler mFrameScheduler;
+	private final Context mApplicationContext;
+
+	private boolean mFrameScheduled;
+	private long mScheduledFrameTimeInNanos;
+	private long mFrameTimeInNanos;
+	private long mFrameIntervalInNanos = DEFAULT_FRAME_INTERVAL_IN_NANOS;
+
+	private boolean mPowerSaveMode;
+	private float mDurationScale = 1.0f;
+
+	private FrameTicker(Context context) {
+		if (Build.VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN) {
+			mFrameScheduler = new ChoreographerFrameScheduler(this);
+		} else {
+			mFrameScheduler = new HandlerFrameScheduler(this);
+		}
+		mFrameTimeInNanos = System.nanoTime();
+
+		mApplicationContext = context.getApplicationContext();
+		if (Build.VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP && mApplicationContext != null) {
+			PowerSaveModeReceiver.register(mApplicationContext, this);
+		}
+		if (mApplicationContext != null) {
+			DurationScaleObserver.register(mApplicationContext, this);
+		}
+		updateFrameInterval();
+	}
+
+	static FrameTicker getInstance(Context context) {
+		if (sInstance == null) {
+			sInstance = new FrameTicker(context);
+		}
+		return sInstance;
+	}
+
+	void register(AnimatedView view) {
+		if (!mViews.contains(view)) {
+			mViews.add(view);
+		}
+		updateFrameInterval();
+	}
+
+	void unregister(AnimatedView view) {
+		mViews.remove(view);
+	}
+
+	/**
+	 * Asks for a frame callback on the next vsync. Several requests issued before that vsync are served by a single
+	 * callback.
+	 */
+	void requestFrame() {
+		scheduleFrame(0);
+	}
+
+	private void scheduleFrame(long delayInMillis) {
+		long frameTimeInNanos = System.nanoTime() + delayInMillis * NANOSECONDS_IN_MILLISECOND;
+		if (mFrameScheduled) {
+			if (mScheduledFrameTimeInNanos <= frameTimeInNanos) {
+				return;
+			}
+			mFrameScheduler.cancelFrame();
+		}
+		mFrameScheduled = true;
+		mScheduledFrameTimeInNanos = frameTimeInNanos;
+		mFrameScheduler.postFrame(delayInMillis);
+	}
+
+	/**
+	 * Reads the refresh rate of the default display again, as it may change while the process lives
+	 */
+	private void updateFrameInterval() {
+		if (mApplicationContext == null) {
+			return;
+		}
+		WindowManager windowManager = (WindowManager) mApplicationContext.getSystemService(Context.WINDOW_SERVICE);
+		Display display = windowManager != null ? windowManager.getDefaultDisplay() : null;
+		if (display != null && display.getRefreshRate() >= MINIMUM_REFRESH_RATE) {
+			mFrameIntervalInNanos = (long) (NANOSECONDS_IN_SECOND / display.getRefreshRate());
+		}
+	}
+
+	/**
+	 * @return vsync interval of the default display, from its refresh rate
+	 */
+	long getFrameIntervalInNanos() {
+		return mFrameIntervalInNanos;
+	}
+
+	/**
+	 * @return true if the OS battery saver is on. Always false before Lollipop.
+	 */
+	boolean isPowerSaveMode() {
+		return mPowerSaveMode;
+	}
+
+	/**
+	 * @return animator duration scale set in the system settings, 0 when animations are turned off
+	 */
+	float getDurationScale() {
+		return mDurationScale;
+	}
+
+	/**
+	 * Reads the animator duration scale from the system settings. Can be called from any thread.
+	 */
+	@SuppressWarnings("deprecation")
+	static float readDurationScale(ContentResolver contentResolver) {
+		if (Build.VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR1) {
+			return GlobalSettings.getDurationScale(contentResolver);
+		}
+		return Settings.System.getFloat(contentResolver, Settings.System.ANIMATOR_DURATION_SCALE, 1.0f);
+	}
+
+	/**
+	 * @return uri of the animator duration scale setting, to observe its changes
+	 */
+	@SuppressWarnings("deprecation")
+	static Uri getDurationScaleUri() {
+		if (Build.VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR1) {
+			return GlobalSettings.getDurationScaleUri();
+		}
+		return Settings.System.getUriFor(Settings.System.ANIMATOR_DURATION_SCALE);
+	}
+
+	private void setDurationScale(float durationScale) {
+		if (durationScale == mDurationScale) {
+			return;
+		}
+		mDurationScale = durationScale;
+		// Views that stopped animating with a scale of 0 have to start again
+		for (int i = mViews.size() - 1; i >= 0; i--) {
+			mViews.get(i).setStateChanged();
+		}
+	}
+
+	/**
+	 * Timestamp every view drawing in the current frame should use. Draws that are not caused by a frame callback
+	 * (layout, parent invalidation...) fall back to the system clock.
+	 *
+	 * @return current frame time in {@link System#nanoTime()} base
+	 */
+	@Override
+	public long getFrameTimeInNanos() {
+		long now = System.nanoTime();
+		if (now - mFrameTimeInNanos < mFrameIntervalInNanos) {
+			return mFrameTimeInNanos;
+		}
+		return now;
+	}
+
+	private void doFrame(long frameTimeInNanos) {
+		mFrameScheduled = false;
+		mFrameTimeInNanos = frameTimeInNanos;
+
+		long nextFrameTimeInNanos = Long.MAX_VALUE;
+		for (int i = mViews.size() - 1; i >= 0; i--) {
+			nextFrameTimeInNanos = Math.min(nextFrameTimeInNanos, mViews.get(i).onFrame(frameTimeInNanos));
+		}
+
+		if (nextFrameTimeInNanos != Long.MAX_VALUE) {
+			long delayInNanos = nextFrameTimeInNanos - frameTimeInNanos - mFrameIntervalInNanos;
+			scheduleFrame(Math.max(0, delayInNanos / NANOSECONDS_IN_MILLISECOND));
+		}
+	}
+
+	private static abstract class FrameScheduler {
+
+		protected final FrameTicker mTicker;
+
+		FrameScheduler(FrameTicker ticker) {
+			mTicker = ticker;
+		}
+
+		abstract void postFrame(long delayInMillis);
+
+		abstract void cancelFrame();
+	}
+
+	@TargetApi(VERSION_CODES.JELLY_BEAN)
+	private static class ChoreographerFrameScheduler extends FrameScheduler implements Choreographer.FrameCallback {
+
+		private final Choreographer mChoreographer = Choreographer.getInstance();
+
+		ChoreographerFrameScheduler(FrameTicker ticker) {
+			super(ticker);
+		}
+
+		@Override
+		void postFrame(long delayInMillis) {
+			mChoreographer.postFrameCallbackDelayed(this, delayInMillis);
+		}
+
+		@Override
+		void cancelFrame() {
+			mChoreographer.removeFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			mTicker.doFrame(frameTimeNanos);
+		}
+	}
+
+	private static class HandlerFrameScheduler extends FrameScheduler implements Runnable {
+
+		private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+		HandlerFrameScheduler(FrameTicker ticker) {
+			super(ticker);
+		}
+
+		@Override
+		void postFrame(long delayInMillis) {
+			long frameIntervalInMillis = mTicker.mFrameIntervalInNanos / NANOSECONDS_IN_MILLISECOND;
+			mHandler.postDelayed(this, Math.max(frameIntervalInMillis, delayInMillis));
+		}
+
+		@Override
+		void cancelFrame() {
+			mHandler.removeCallbacks(this);
+		}
+
+		@Override
+		public void run() {
+			mTicker.doFrame(System.nanoTime());
+		}
+	}
+
+	@TargetApi(VERSION_CODES.LOLLIPOP)
+	private static class PowerSaveModeReceiver extends BroadcastReceiver {
+
+		private final FrameTicker mTicker;
+
+		private PowerSaveModeReceiver(FrameTicker ticker) {
+			mTicker = ticker;
+		}
+
+		static void register(Context context, FrameTicker ticker) {
+			PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+			ticker.mPowerSaveMode = powerManager.isPowerSaveMode();
+			context.registerReceiver(new PowerSaveModeReceiver(ticker),
+					new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+		}
+
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+			mTicker.mPowerSaveMode = powerManager.isPowerSaveMode();
+		}
+	}
+
+	private static class DurationScaleObserver extends ContentObserver {
+
+		private final ContentResolver mContentResolver;
+		private final FrameTicker mTicker;
+
+		private DurationScaleObserver(ContentResolver contentResolver, FrameTicker ticker) {
+			super(new Handler(Looper.getMainLooper()));
+			mContentResolver = contentResolver;
+			mTicker = ticker;
+		}
+
+		static void register(Context context, FrameTicker ticker) {
+			ContentResolver contentResolver = context.getContentResolver();
+			if (contentResolver == null) {
+				return;
+			}
+			DurationScaleObserver observer = new DurationScaleObserver(contentResolver, ticker);
+			contentResolver.registerContentObserver(getDurationScaleUri(), false, observer);
+			ticker.mDurationScale = readDurationScale(contentResolver);
+		}
+
+		@Override
+		public void onChange(boolean selfChange) {
+			mTicker.setDurationScale(readDurationScale(mContentResolver));
+		}
+	}
+
+	@TargetApi(VERSION_CODES.JELLY_BEAN_MR1)
+	private static class GlobalSettings {
+
+		static Uri getDurationScaleUri() {
+			return Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE);
+		}
+
+		static float getDurationScale(ContentResolver contentResolver) {
+			return Settings.Global.getFloat(contentResolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1.0f);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.view.animation.Interpolator;
+
+/**
+ * Exposes an Android {@link Interpolator} as an {@link Easing}. Two adapters of the same interpolator are equal, so
+ * they share their {@link LookupTableEasing} tables.
+ */
+final class InterpolatorEasing implements Easing {
+
+	private final Interpolator mInterpolator;
+
+	InterpolatorEasing(Interpolator interpolator) {
+		mInterpolator = interpolator;
+	}
+
+	@Override
+	public float getInterpolation(float input) {
+		return mInterpolator.getInterpolation(input);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof InterpolatorEasing && ((InterpolatorEasing) o).mInterpolator.equals(mInterpolator);
+	}
+
+	@Override
+	public int hashCode() {
+		return mInterpolator.hashCode();
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * {@link Easing} that samples another curve once into a table and linearly interpolates between its entries.
+ *
+ * Tables are shared: every instance obtained for the same source curve and size reads the same array, so the cost
+ * of sampling is paid once per process. Input is clamped to [0, 1].
+ */
+public final class LookupTableEasing implements Easing {
+
+	public static final int DEFAULT_TABLE_SIZE = 256;
+
+	private static final int MIN_TABLE_SIZE = 2;
+
+	private static final Map<Easing, Map<Integer, float[]>> sTables = new WeakHashMap<Easing, Map<Integer, float[]>>();
+
+	private final Easing mSource;
+	private final float[] mTable;
+	private final int mLastIndex;
+
+	private LookupTableEasing(Easing source, float[] table) {
+		mSource = source;
+		mTable = table;
+		mLastIndex = table.length - 1;
+	}
+
+	/**
+	 * Returns an easing backed by the shared table for the given curve and size, sampling it if needed
+	 *
+	 * @param source curve to sample. Curves are considered the same if they are equal
+	 * @param size number of entries of the table
+	 * @return lookup table backed easing
+	 */
+	public static LookupTableEasing obtain(Easing source, int size) {
+		if (source instanceof LookupTableEasing) {
+			source = ((LookupTableEasing) source).mSource;
+		}
+		return new LookupTableEasing(source, obtainTable(source, Math.max(MIN_TABLE_SIZE, size)));
+	}
+
+	private static synchronized float[] obtainTable(Easing source, int size) {
+		Map<Integer, float[]> tablesBySize = sTables.get(source);
+		if (tablesBySize == null) {
+			tablesBySize = new HashMap<Integer, float[]>();
+			sTables.put(source, tablesBySize);
+		}
+
+		float[] table = tablesBySize.get(size);
+		if (table == null) {
+			table = sample(source, size);
+			tablesBySize.put(size, table);
+		}
+		return table;
+	}
+
+	private static float[] sample(Easing source, int size) {
+		float[] table = new float[size];
+		float lastIndex = size - 1;
+		for (int i = 0; i < size; i++) {
+			table[i] = source.getInterpolation(i / lastIndex);
+		}
+		return table;
+	}
+
+	public int getTableSize() {
+		return mTable.length;
+	}
+
+	@Override
+	public float getInterpolation(float input) {
+		if (input <= 0) {
+			return mTable[0];
+		}
+		if (input >= 1.0f) {
+			return mTable[mLastIndex];
+		}
+
+		float position = input * mLastIndex;
+		int index = (int) position;
+		float fraction = position - index;
+		return mTable[index] + (mTable[index + 1] - mTable[index]) * fraction;
+	}
+
+}
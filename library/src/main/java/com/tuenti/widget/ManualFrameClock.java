@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * {@link FrameClock} that only moves when told to, so animations can be stepped deterministically in tests
+ */
+public final class ManualFrameClock implements FrameClock {
+
+	private long mFrameTimeInNanos;
+
+	public ManualFrameClock() {
+	}
+
+	public ManualFrameClock(long frameTimeInNanos) {
+		mFrameTimeInNanos = frameTimeInNanos;
+	}
+
+	/**
+	 * Moves the clock forward
+	 *
+	 * @param timeInNanos time to add to the current frame time
+	 */
+	public void advance(long timeInNanos) {
+		mFrameTimeInNanos += timeInNanos;
+	}
+
+	public void setFrameTimeInNanos(long frameTimeInNanos) {
+		mFrameTimeInNanos = frameTimeInNanos;
+	}
+
+	@Override
+	public long getFrameTimeInNanos() {
+		return mFrameTimeInNanos;
+	}
+
+}
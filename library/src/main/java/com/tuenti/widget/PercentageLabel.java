@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Percentage drawn at the center of a progress widget.
+ *
+ * Every text from "0%" to "100%" is built and measured once per text style, and the instance is shared by every
+ * widget using that style, so drawing a frame neither allocates nor measures text. Text sizes are rounded to whole
+ * pixels and only the most recently obtained styles are cached, so animating the size can't grow the cache.
+ */
+final class PercentageLabel {
+
+	private static final int MAX_PERCENTAGE = 100;
+	private static final int MAX_CACHED_LABELS = 8;
+
+	private static final Map<PercentageLabel, PercentageLabel> sLabels =
+			new LinkedHashMap<PercentageLabel, PercentageLabel>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<PercentageLabel, PercentageLabel> eldest) {
+					return size() > MAX_CACHED_LABELS;
+				}
+			};
+
+	private final int mColor;
+	private final float mTextSize;
+
+	private Paint mPaint;
+	private char[][] mTexts;
+	private float[] mTextWidths;
+	private float mBaselineOffset;
+
+	private PercentageLabel(int color, float textSize) {
+		mColor = color;
+		mTextSize = textSize;
+	}
+
+	/**
+	 * Returns the shared label for the given text style, building its texts if needed
+	 *
+	 * @param textSize text size in pixels, rounded to a whole pixel
+	 */
+	static synchronized PercentageLabel obtain(int color, float textSize) {
+		PercentageLabel key = new PercentageLabel(color, Math.max(1, Math.round(textSize)));
+
+		PercentageLabel label = sLabels.get(key);
+		if (label == null) {
+			label = key;
+			label.buildTexts();
+			sLabels.put(label, label);
+		}
+		return label;
+	}
+
+	private void buildTexts() {
+		mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		mPaint.setColor(mColor);
+		mPaint.setTextSize(mTextSize);
+		mPaint.setTextAlign(Paint.Align.LEFT);
+
+		mTexts = new char[MAX_PERCENTAGE + 1][];
+		mTextWidths = new float[MAX_PERCENTAGE + 1];
+		for (int i = 0; i <= MAX_PERCENTAGE; i++) {
+			mTexts[i] = (i + "%").toCharArray();
+			mTextWidths[i] = mPaint.measureText(mTexts[i], 0, mTexts[i].length);
+		}
+		mBaselineOffset = -(mPaint.ascent() + mPaint.descent()) * 0.5f;
+	}
+
+	/**
+	 * Draws the percentage centered on the given point
+	 *
+	 * @param progress progress of the widget, see {@link #getPercentage(float)}
+	 */
+	void draw(Canvas canvas, float centerX, float centerY, float progress) {
+		int percentage = getPercentage(progress);
+		char[] text = mTexts[percentage];
+		canvas.drawText(text, 0, text.length, centerX - mTextWidths[percentage] * 0.5f, centerY + mBaselineOffset,
+				mPaint);
+	}
+
+	/**
+	 * A full lap of the ring, like a complete {@link ProgressSource}, reads 100%. Further laps keep reading 100%.
+	 *
+	 * @return percentage between 0 and 100
+	 */
+	static int getPercentage(float progress) {
+		int percentage = Math.round(progress * MAX_PERCENTAGE);
+		if (percentage > MAX_PERCENTAGE) {
+			return MAX_PERCENTAGE;
+		} else if (percentage < 0) {
+			return 0;
+		}
+		return percentage;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PercentageLabel)) {
+			return false;
+		}
+
+		PercentageLabel label = (PercentageLabel) o;
+		return mColor == label.mColor && Float.compare(mTextSize, label.mTextSize) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * mColor + Float.floatToIntBits(mTextSize);
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Progress that {@link AnimatedCircleProgressView} pulls on its own frame schedule, see
+ * {@link AnimatedCircleProgressView#setProgressSource(ProgressSource)}.
+ *
+ * Implementations are read from the main thread while being updated from any other thread, so they should only
+ * publish a value, e.g. a volatile counter, and leave every other computation to {@link #getProgress()}.
+ */
+public interface ProgressSource {
+
+	/**
+	 * Returned while the progress can't be computed, e.g. the total length is not known
+	 */
+	float UNKNOWN_PROGRESS = -1;
+
+	/**
+	 * @return progress between 0 and 1, or {@link #UNKNOWN_PROGRESS}
+	 */
+	float getProgress();
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+
+/**
+ * Records a frame once and replays it until it is invalidated.
+ *
+ * Frames are recorded into a {@link Picture}. Hardware accelerated canvases can't draw pictures before Marshmallow,
+ * and on those the renderer already keeps the display list of a view that didn't change, so nothing is cached there.
+ */
+final class RenderCache {
+
+	private Picture mPicture;
+	private boolean mValid;
+
+	/**
+	 * @return false if frames drawn on the target have to be drawn directly
+	 */
+	static boolean canCache(Canvas target) {
+		return Build.VERSION.SDK_INT >= VERSION_CODES.M
+				|| Build.VERSION.SDK_INT < VERSION_CODES.HONEYCOMB
+				|| !target.isHardwareAccelerated();
+	}
+
+	boolean isValid() {
+		return mValid;
+	}
+
+	void invalidate() {
+		mValid = false;
+	}
+
+	/**
+	 * Starts recording a frame
+	 *
+	 * @return canvas the frame has to be drawn on
+	 */
+	Canvas beginRecording(int width, int height) {
+		if (mPicture == null) {
+			mPicture = new Picture();
+		}
+		return mPicture.beginRecording(width, height);
+	}
+
+	void endRecording() {
+		mPicture.endRecording();
+		mValid = true;
+	}
+
+	void draw(Canvas canvas) {
+		canvas.drawPicture(mPicture);
+	}
+
+	/**
+	 * Frees the memory held by the cache. Next frame will be recorded again.
+	 */
+	void release() {
+		mValid = false;
+		mPicture = null;
+	}
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+import android.view.View;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Plays the indeterminate pulse on the RenderThread, so it keeps animating while the main thread is busy.
+ *
+ * Relies on the hidden {@code RenderNodeAnimator} and {@code CanvasProperty} platform classes, reached through
+ * reflection. They exist since Lollipop, and Pie restricts access to non-SDK interfaces, so the pulse only runs from
+ * API 21 to 27. Whenever those classes can't be used, or the canvas is not hardware accelerated, {@link #draw} returns
+ * false and the caller animates on the main thread as usual.
+ *
+ * RenderNodeAnimator can't repeat, so each animator plays what is left of the current grow or shrink and the view
+ * starts the next one when it ends. Animators bake interpolators that are not native into a lookup table of a few
+ * hundred samples, so a single animator never spans more than one pulse, to keep the curve smooth.
+ */
+@TargetApi(VERSION_CODES.LOLLIPOP)
+final class RenderThreadPulse {
+
+	private static final int MAX_SDK_INT = 27;
+	private static final int NANOSECONDS_IN_MILLISECOND = 1000000;
+
+	private static boolean sResolved;
+	private static Class<?> sCanvasPropertyClass;
+	private static Method sCreateFloatProperty;
+	private static Method sCreatePaintProperty;
+	private static Constructor<?> sAnimatorConstructor;
+	private static Method sSetTarget;
+	private static Class<?> sCanvasClass;
+	private static Method sDrawCircle;
+
+	private final View mView;
+	private final PulseInterpolator mInterpolator = new PulseInterpolator();
+	private final Animator.AnimatorListener mEndListener = new AnimatorListenerAdapter() {
+		@Override
+		public void onAnimationEnd(Animator animation) {
+			if (animation == mAnimator) {
+				mEnded = true;
+				mView.invalidate();
+			}
+		}
+	};
+
+	private Animator mAnimator;
+	private boolean mEnded;
+	private long mStartTimeInNanos;
+
+	//CanvasProperty instances
+	private Object mCenterX;
+	private Object mCenterY;
+	private Object mRadius;
+	private Object mPaint;
+
+	RenderThreadPulse(View view) {
+		mView = view;
+	}
+
+	/**
+	 * @return true if the platform classes the pulse relies on are available
+	 */
+	static boolean isSupported() {
+		if (Build.VERSION.SDK_INT < VERSION_CODES.LOLLIPOP || Build.VERSION.SDK_INT > MAX_SDK_INT) {
+			return false;
+		}
+		resolve();
+		return sAnimatorConstructor != null;
+	}
+
+	private static void resolve() {
+		if (sResolved) {
+			return;
+		}
+		sResolved = true;
+
+		try {
+			Class<?> canvasPropertyClass = Class.forName("android.graphics.CanvasProperty");
+			Class<?> animatorClass = Class.forName("android.view.RenderNodeAnimator");
+			sCreateFloatProperty = canvasPropertyClass.getMethod("createFloat", float.class);
+			sCreatePaintProperty = canvasPropertyClass.getMethod("createPaint", Paint.class);
+			sSetTarget = animatorClass.getMethod("setTarget", Canvas.class);
+			sCanvasPropertyClass = canvasPropertyClass;
+			sAnimatorConstructor = animatorClass.getConstructor(canvasPropertyClass, float.class);
+		} catch (ClassNotFoundException e) {
+			sAnimatorConstructor = null;
+		} catch (NoSuchMethodException e) {
+			sAnimatorConstructor = null;
+		}
+	}
+
+	private static Method getDrawCircleMethod(Canvas canvas) {
+		Class<?> canvasClass = canvas.getClass();
+		if (canvasClass != sCanvasClass) {
+			sCanvasClass = canvasClass;
+			try {
+				sDrawCircle = canvasClass.getMethod("drawCircle", sCanvasPropertyClass, sCanvasPropertyClass,
+						sCanvasPropertyClass, sCanvasPropertyClass);
+			} catch (NoSuchMethodException e) {
+				sDrawCircle = null;
+			}
+		}
+		return sDrawCircle;
+	}
+
+	/**
+	 * @return true while the pulse is animated by the RenderThread
+	 */
+	boolean isRunning() {
+		return mAnimator != null && !mEnded;
+	}
+
+	/**
+	 * @return true if the animator played its pulse and the next one has to be started
+	 */
+	boolean hasEnded() {
+		return mAnimator != null && mEnded;
+	}
+
+	/**
+	 * Draws the indeterminate circle, starting the pulse from the current model position if it is not running
+	 *
+	 * @return false if the pulse can't be drawn on this canvas, so the caller has to draw the frame itself
+	 */
+	boolean draw(Canvas canvas, CircleProgressModel model, Paint paint) {
+		if (!canvas.isHardwareAccelerated()) {
+			return false;
+		}
+		Method drawCircle = getDrawCircleMethod(canvas);
+		if (drawCircle == null) {
+			return false;
+		}
+
+		try {
+			if (mAnimator == null) {
+				start(canvas, model, paint);
+			}
+			drawCircle.invoke(canvas, mCenterX, mCenterY, mRadius, mPaint);
+			return true;
+		} catch (IllegalAccessException e) {
+			stop();
+			return false;
+		} catch (InvocationTargetException e) {
+			stop();
+			return false;
+		} catch (InstantiationException e) {
+			stop();
+			return false;
+		}
+	}
+
+	private void start(Canvas canvas, CircleProgressModel model, Paint paint)
+			throws IllegalAccessException, InvocationTargetException, InstantiationException {
+		mCenterX = sCreateFloatProperty.invoke(null, model.getIndeterminateCircleX());
+		mCenterY = sCreateFloatProperty.invoke(null, model.getIndeterminateCircleY());
+		mRadius = sCreateFloatProperty.invoke(null, model.getIndeterminatePulseMinimumRadius());
+		mPaint = sCreatePaintProperty.invoke(null, paint);
+		float startPosition = model.getIndeterminatePulsePosition();
+		float positionSpan = (float) Math.floor(startPosition) + 1.0f - startPosition;
+		mInterpolator.set(model.getProgressEasing(), startPosition, positionSpan);
+
+		Animator animator = (Animator) sAnimatorConstructor.newInstance(mRadius,
+				model.getIndeterminatePulseMaximumRadius());
+		//RenderNodeAnimator applies the animator duration scale itself
+		animator.setDuration(Math.max(1,
+				(long) (positionSpan * model.getIndeterminatePulseDuration() / NANOSECONDS_IN_MILLISECOND)));
+		animator.setInterpolator(mInterpolator);
+		animator.addListener(mEndListener);
+		sSetTarget.invoke(animator, canvas);
+
+		mAnimator = animator;
+		mEnded = false;
+		mStartTimeInNanos = System.nanoTime();
+		animator.start();
+	}
+
+	/**
+	 * Stops the pulse so the main thread can take over
+	 *
+	 * @return time the pulse ran on the RenderThread, to advance the model by, or 0 if it was not running
+	 */
+	long stop() {
+		Animator animator = mAnimator;
+		if (animator == null) {
+			return 0;
+		}
+
+		mAnimator = null;
+		mEnded = false;
+		mCenterX = null;
+		mCenterY = null;
+		mRadius = null;
+		mPaint = null;
+		animator.cancel();
+		return System.nanoTime() - mStartTimeInNanos;
+	}
+
+	/**
+	 * Maps the animator fraction to the rest of the current grow or shrink pulse, following the same curve as
+	 * {@link CircleProgressModel}, from the position the model was in when the animator started
+	 */
+	private static final class PulseInterpolator implements TimeInterpolator {
+
+		private Easing mEasing = Easing.DECELERATE;
+		private float mStartPosition;
+		private float mPositionSpan;
+
+		void set(Easing easing, float startPosition, float positionSpan) {
+			mEasing = easing;
+			mStartPosition = startPosition;
+			mPositionSpan = positionSpan;
+		}
+
+		@Override
+		public float getInterpolation(float input) {
+			float position = (mStartPosition + input * mPositionSpan) % 2.0f;
+			if (position < 1.0f) {
+				return mEasing.getInterpolation(position);
+			}
+			return 1.0f - mEasing.getInterpolation(position - 1.0f);
+		}
+	}
+
+}
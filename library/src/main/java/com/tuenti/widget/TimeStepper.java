@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Turns the time elapsed between frames into the animation time fed to a {@link Target}.
+ *
+ * Elapsed time is measured from the previous frame. Once the time base is invalidated, e.g. when the animation goes
+ * idle, the next frame starts a new one and reports no elapsed time, so the idle period is never applied.
+ *
+ * By default the time is applied at once, rounded to whole vsync intervals when one is given. With a fixed time step
+ * it is applied in steps of that duration, carrying over what does not fill a step and applying no more than a
+ * maximum per frame. Has no Android dependencies, so stepping can be verified on a plain JVM.
+ */
+final class TimeStepper {
+
+	static final long TIME_STEP_VARIABLE = 0;
+
+	interface Target {
+		void onUpdate(long elapsedTimeInNanos);
+	}
+
+	private long mPreviousFrameTimeInNanos;
+	private boolean mTimeBaseValid;
+	private long mUnappliedTimeInNanos;
+	private long mFixedTimeStepInNanos = TIME_STEP_VARIABLE;
+	private long mMaxFrameDeltaInNanos;
+
+	/**
+	 * @param timeStepInNanos duration of a step or {@link #TIME_STEP_VARIABLE}
+	 * @param maxFrameDeltaInNanos maximum animation time applied per frame
+	 */
+	void setFixedTimeStep(long timeStepInNanos, long maxFrameDeltaInNanos) {
+		mFixedTimeStepInNanos = Math.max(TIME_STEP_VARIABLE, timeStepInNanos);
+		mMaxFrameDeltaInNanos = Math.max(timeStepInNanos, maxFrameDeltaInNanos);
+		mUnappliedTimeInNanos = 0;
+	}
+
+	long getFixedTimeStep() {
+		return mFixedTimeStepInNanos;
+	}
+
+	/**
+	 * Measures elapsed time from the given frame time on, dropping the time carried over from previous frames
+	 */
+	void reset(long frameTimeInNanos) {
+		mPreviousFrameTimeInNanos = frameTimeInNanos;
+		mTimeBaseValid = true;
+		mUnappliedTimeInNanos = 0;
+	}
+
+	/**
+	 * Makes the next frame start a new time base
+	 */
+	void invalidateTimeBase() {
+		mTimeBaseValid = false;
+	}
+
+	/**
+	 * @return time elapsed since the previous frame, or 0 if the time base was invalidated
+	 */
+	long getElapsedTime(long frameTimeInNanos) {
+		if (!mTimeBaseValid) {
+			reset(frameTimeInNanos);
+		}
+		long elapsedTimeInNanos = Math.max(0, frameTimeInNanos - mPreviousFrameTimeInNanos);
+		mPreviousFrameTimeInNanos = frameTimeInNanos;
+		return elapsedTimeInNanos;
+	}
+
+	/**
+	 * Feeds the elapsed time to the target, either at once or in fixed steps
+	 *
+	 * @param vsyncIntervalInNanos interval variable steps are rounded to, or 0 to apply them as they are
+	 * @return animation time actually applied
+	 */
+	long advance(long elapsedTimeInNanos, long vsyncIntervalInNanos, Target target) {
+		if (mFixedTimeStepInNanos == TIME_STEP_VARIABLE) {
+			long appliedTimeInNanos = quantizeToVsync(elapsedTimeInNanos, vsyncIntervalInNanos);
+			target.onUpdate(appliedTimeInNanos);
+			return appliedTimeInNanos;
+		}
+
+		mUnappliedTimeInNanos = Math.min(mUnappliedTimeInNanos + elapsedTimeInNanos, mMaxFrameDeltaInNanos);
+		long appliedTimeInNanos = 0;
+		while (mUnappliedTimeInNanos >= mFixedTimeStepInNanos) {
+			target.onUpdate(mFixedTimeStepInNanos);
+			mUnappliedTimeInNanos -= mFixedTimeStepInNanos;
+			appliedTimeInNanos += mFixedTimeStepInNanos;
+		}
+		return appliedTimeInNanos;
+	}
+
+	/**
+	 * Advances animation time in whole vsync intervals of the display, so draws landing between two vsyncs don't make
+	 * motion uneven. What is left is carried over to the next frame, so no time is lost.
+	 */
+	private long quantizeToVsync(long elapsedTimeInNanos, long vsyncIntervalInNanos) {
+		if (vsyncIntervalInNanos <= 0) {
+			return elapsedTimeInNanos;
+		}
+
+		long timeInNanos = mUnappliedTimeInNanos + elapsedTimeInNanos;
+		long frames = (timeInNanos + vsyncIntervalInNanos / 2) / vsyncIntervalInNanos;
+		long quantizedTimeInNanos = frames * vsyncIntervalInNanos;
+		mUnappliedTimeInNanos = timeInNanos - quantizedTimeInNanos;
+		return quantizedTimeInNanos;
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircleProgressModelTest {
+
+	private static final int SIZE = 200;
+	private static final float STROKE_WIDTH = 16;
+	private static final long FRAME_TIME_IN_NANOS = 16666667;
+	private static final long LONG_FRAME_TIME_IN_NANOS = 66666667;
+	private static final int FRAMES_TO_SETTLE = 600;
+
+	private CircleProgressModel mModel;
+	private RecordingListener mListener;
+
+	@Before
+	public void setUp() {
+		mModel = new CircleProgressModel(0, STROKE_WIDTH);
+		mModel.setSize(SIZE, SIZE);
+		mListener = new RecordingListener();
+		mModel.setListener(mListener);
+	}
+
+	@Test
+	public void progressRequestedWhileGoingIndeterminateIsAppliedAfterTheTransition() {
+		settleAt(0.5f);
+		mModel.setIndeterminate();
+		runFrames(10);
+
+		mModel.setProgress(0.2f);
+		mModel.setProgress(1.2f);
+
+		assertEquals(1.2f, mModel.getProgress(), 0);
+		assertTrue(mModel.isHeadingToProgress());
+		runUntilSettled();
+		assertEquals(CircleProgressModel.STATE_PROGRESS, mModel.getState());
+		assertEquals(1.2f, mModel.getProgressArcCurrentAngle(), 0);
+		assertEquals("I P PE ", mListener.mEvents.toString());
+	}
+
+	@Test
+	public void indeterminateRequestedWhileGoingToProgressIsAppliedAfterTheTransition() {
+		mModel.setProgress(0.5f);
+		runFrames(50);
+
+		mModel.setIndeterminate();
+
+		assertFalse(mModel.isHeadingToProgress());
+		runUntilSettled();
+		assertEquals(CircleProgressModel.STATE_INDETERMINATE, mModel.getState());
+		assertEquals("P I ", mListener.mEvents.toString());
+	}
+
+	@Test
+	public void progressRequestedBeforeTheArcsShowIsReachedWithoutAnExtraAnimation() {
+		mModel.setProgress(0.2f);
+		runFrames(5);
+
+		mModel.setProgress(0.7f);
+
+		runUntilSettled();
+		assertEquals(0.7f, mModel.getProgressArcCurrentAngle(), 0);
+		assertEquals("P PE ", mListener.mEvents.toString());
+	}
+
+	@Test
+	public void requestsBeforeTheTransitionStartsCancelIt() {
+		mModel.setProgress(0.5f);
+		mModel.setIndeterminate();
+
+		runFrames(100);
+
+		assertEquals(CircleProgressModel.STATE_INDETERMINATE, mModel.getState());
+		assertEquals(0, mModel.getProgress(), 0);
+		assertEquals("", mListener.mEvents.toString());
+	}
+
+	@Test
+	public void progressSettlesOnTheTargetWithLongFrames() {
+		float[] targets = {1.0f, 2.0f, 0.5f};
+		for (float target : targets) {
+			mModel.setProgress(target);
+			for (int i = 0; i < 200; i++) {
+				mModel.update(LONG_FRAME_TIME_IN_NANOS);
+			}
+
+			assertEquals(CircleProgressModel.STATE_PROGRESS, mModel.getState());
+			assertEquals(target, mModel.getProgressArcCurrentAngle(), 0);
+		}
+	}
+
+	@Test
+	public void zeroDurationScaleSettlesInOneFrame() {
+		mModel.setDurationScale(0);
+		runFrames(1);
+		assertFalse(mModel.isAnimationInProgress());
+
+		mModel.setProgress(0.5f);
+		runFrames(1);
+		assertEquals(CircleProgressModel.STATE_PROGRESS, mModel.getState());
+		assertEquals(0.5f, mModel.getProgressArcCurrentAngle(), 0);
+
+		mModel.setIndeterminate();
+		runFrames(1);
+		assertEquals(CircleProgressModel.STATE_INDETERMINATE, mModel.getState());
+		assertFalse(mModel.isAnimationInProgress());
+		assertEquals("P PE I ", mListener.mEvents.toString());
+	}
+
+	@Test
+	public void restoredSnapshotResumesOnTheSameFrame() {
+		mModel.setProgress(0.5f);
+		runFrames(40);
+		double[] snapshot = new double[CircleProgressModel.SNAPSHOT_SIZE];
+		mModel.saveSnapshot(snapshot);
+
+		CircleProgressModel restored = new CircleProgressModel(0, STROKE_WIDTH);
+		restored.restoreSnapshot(snapshot);
+		restored.setSize(SIZE, SIZE);
+
+		assertSameFrame(mModel, restored);
+		mModel.update(FRAME_TIME_IN_NANOS);
+		restored.update(FRAME_TIME_IN_NANOS);
+		assertSameFrame(mModel, restored);
+	}
+
+	@Test
+	public void settledSnapshotShowsTheRequestedProgress() {
+		mModel.setProgress(0.5f);
+		runFrames(40);
+		double[] snapshot = new double[CircleProgressModel.SNAPSHOT_SIZE];
+		mModel.saveSnapshot(snapshot);
+
+		CircleProgressModel restored = new CircleProgressModel(0, STROKE_WIDTH);
+		restored.setSize(SIZE, SIZE);
+		restored.restoreSnapshot(snapshot);
+		restored.settle();
+
+		assertEquals(CircleProgressModel.STATE_PROGRESS, restored.getState());
+		assertEquals(0.5f, restored.getProgressArcCurrentAngle(), 0);
+		assertFalse(restored.isIndeterminateCircleVisible());
+		assertEquals(2, restored.getVisibleArcCount());
+		assertEquals(DrawTarget.PAINT_PROGRESS_PENDING, restored.getArcPaint(0));
+	}
+
+	private static void assertSameFrame(CircleProgressModel expected, CircleProgressModel actual) {
+		assertEquals(expected.getState(), actual.getState());
+		assertEquals(expected.getStatePhase(), actual.getStatePhase());
+		assertEquals(expected.getIndeterminateCircleY(), actual.getIndeterminateCircleY(), 0.001f);
+		assertEquals(expected.getIndeterminateCircleRadius(), actual.getIndeterminateCircleRadius(), 0.001f);
+		assertEquals(expected.getProgressArcCurrentAngle(), actual.getProgressArcCurrentAngle(), 0);
+		assertEquals(expected.getVisibleArcCount(), actual.getVisibleArcCount());
+		for (int i = 0; i < expected.getVisibleArcCount(); i++) {
+			assertEquals(expected.getArcSweepAngle(i), actual.getArcSweepAngle(i), 0);
+		}
+	}
+
+	private void settleAt(float progress) {
+		mModel.setProgress(progress);
+		runUntilSettled();
+		mListener.mEvents.setLength(0);
+	}
+
+	private void runUntilSettled() {
+		runFrames(FRAMES_TO_SETTLE);
+	}
+
+	private void runFrames(int frames) {
+		for (int i = 0; i < frames; i++) {
+			mModel.update(FRAME_TIME_IN_NANOS);
+		}
+	}
+
+	private static class RecordingListener implements CircleProgressModel.Listener {
+
+		private final StringBuilder mEvents = new StringBuilder();
+
+		@Override
+		public void onTransitionToIndeterminateEnd() {
+			mEvents.append("I ");
+		}
+
+		@Override
+		public void onTransitionToProgressEnd() {
+			mEvents.append("P ");
+		}
+
+		@Override
+		public void onProgressEnd() {
+			mEvents.append("PE ");
+		}
+	}
+
+}
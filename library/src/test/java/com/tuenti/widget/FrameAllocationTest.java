@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Enforces the zero allocation contract of the per-frame path: once warmed up, advancing the animation engine,
+ * computing its render values, issuing its draw operations, delivering listener callbacks, interpolating through
+ * lookup tables and recording frame metrics must not allocate, whatever state transition is running.
+ */
+public class FrameAllocationTest {
+
+	private static final int SIZE = 200;
+	private static final float STROKE_WIDTH = 16;
+	private static final long FRAME_TIME_IN_NANOS = 16666667;
+	private static final int FRAMES = 5000;
+
+	private com.sun.management.ThreadMXBean mThreadMXBean;
+	private long mMeasurementOverheadInBytes;
+
+	private CircleProgressModel mModel;
+	private CountingListener mListener;
+	private FrameMetrics mFrameMetrics;
+	private float[] mAnimationBounds;
+	private RecordingDrawTarget mDrawTarget;
+
+	@Before
+	public void setUp() {
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+		mThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+		assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+		mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+		mModel = new CircleProgressModel(0, STROKE_WIDTH);
+		mModel.setSize(SIZE, SIZE);
+		mListener = new CountingListener();
+		mModel.setListener(mListener);
+		mFrameMetrics = new FrameMetrics();
+		mAnimationBounds = new float[4];
+		mDrawTarget = new RecordingDrawTarget();
+
+		mMeasurementOverheadInBytes = measureMeasurementOverhead();
+	}
+
+	@Test
+	public void indeterminatePulseDoesNotAllocate() {
+		assertFramesDoNotAllocate(new Scenario() {
+			@Override
+			public void run() {
+				runFrames(FRAMES);
+			}
+		});
+	}
+
+	@Test
+	public void transitionsBetweenIndeterminateAndProgressDoNotAllocate() {
+		assertFramesDoNotAllocate(new Scenario() {
+			@Override
+			public void run() {
+				for (int i = 0; i < FRAMES / 400; i++) {
+					mModel.setProgress(0.6f);
+					runFrames(200);
+					mModel.setIndeterminate();
+					runFrames(200);
+				}
+			}
+		});
+
+		assertTrue(mListener.mTransitionsToProgress > 0);
+		assertTrue(mListener.mProgressEnds > 0);
+		assertTrue(mListener.mTransitionsToIndeterminate > 0);
+	}
+
+	@Test
+	public void progressUpdatesDoNotAllocate() {
+		mModel.setProgress(0.2f);
+		runFrames(200);
+
+		assertFramesDoNotAllocate(new Scenario() {
+			@Override
+			public void run() {
+				for (int i = 0; i < FRAMES / 100; i++) {
+					mModel.setProgress(i % 2 == 0 ? 1.7f : 0.3f);
+					runFrames(100);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void lookupTableInterpolationDoesNotAllocate() {
+		mModel.setProgressEasing(LookupTableEasing.obtain(Easing.DECELERATE, LookupTableEasing.DEFAULT_TABLE_SIZE));
+		mModel.setTransitionEasing(LookupTableEasing.obtain(Easing.ACCELERATE_DECELERATE,
+				LookupTableEasing.DEFAULT_TABLE_SIZE));
+
+		transitionsBetweenIndeterminateAndProgressDoNotAllocate();
+	}
+
+	private void assertFramesDoNotAllocate(Scenario scenario) {
+		// First run loads classes and fills the tables, which is allowed to allocate
+		scenario.run();
+
+		long allocatedBytes = measureAllocatedBytes(scenario);
+
+		assertEquals("Bytes allocated while running the frames", 0, allocatedBytes);
+	}
+
+	private void runFrames(int frames) {
+		for (int i = 0; i < frames; i++) {
+			int state = mModel.getState();
+			long startTimeInNanos = System.nanoTime();
+			mModel.update(FRAME_TIME_IN_NANOS);
+			mFrameMetrics.recordUpdate(System.nanoTime() - startTimeInNanos, FRAME_TIME_IN_NANOS, FRAME_TIME_IN_NANOS,
+					FRAME_TIME_IN_NANOS, state);
+			mModel.computeAnimationBounds(mAnimationBounds);
+			mDrawTarget.reset();
+			mModel.draw(mDrawTarget);
+			mFrameMetrics.recordRender(0);
+		}
+	}
+
+	private long measureAllocatedBytes(Scenario scenario) {
+		long threadId = Thread.currentThread().getId();
+		long allocatedBytesBefore = mThreadMXBean.getThreadAllocatedBytes(threadId);
+		scenario.run();
+		long allocatedBytesAfter = mThreadMXBean.getThreadAllocatedBytes(threadId);
+		return allocatedBytesAfter - allocatedBytesBefore - mMeasurementOverheadInBytes;
+	}
+
+	private long measureMeasurementOverhead() {
+		Scenario emptyScenario = new Scenario() {
+			@Override
+			public void run() {
+			}
+		};
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			long threadId = Thread.currentThread().getId();
+			long allocatedBytesBefore = mThreadMXBean.getThreadAllocatedBytes(threadId);
+			emptyScenario.run();
+			long allocatedBytesAfter = mThreadMXBean.getThreadAllocatedBytes(threadId);
+			overhead = Math.min(overhead, allocatedBytesAfter - allocatedBytesBefore);
+		}
+		return overhead;
+	}
+
+	private interface Scenario {
+		void run();
+	}
+
+	private static class CountingListener implements CircleProgressModel.Listener {
+
+		private int mTransitionsToIndeterminate;
+		private int mTransitionsToProgress;
+		private int mProgressEnds;
+
+		@Override
+		public void onTransitionToIndeterminateEnd() {
+			mTransitionsToIndeterminate++;
+		}
+
+		@Override
+		public void onTransitionToProgressEnd() {
+			mTransitionsToProgress++;
+		}
+
+		@Override
+		public void onProgressEnd() {
+			mProgressEnds++;
+		}
+	}
+
+}
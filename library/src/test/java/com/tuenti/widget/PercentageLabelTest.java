@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PercentageLabelTest {
+
+	private static final long TOTAL = 1000;
+
+	@Test
+	public void completedSourceReadsOneHundredPercent() {
+		ProgressSource source = new CounterProgressSource(new CounterProgressSource.Counter() {
+			@Override
+			public long getCount() {
+				return TOTAL;
+			}
+		}, TOTAL);
+
+		assertEquals(100, PercentageLabel.getPercentage(source.getProgress()));
+	}
+
+	@Test
+	public void percentageIsClampedBeyondTheFirstLap() {
+		assertEquals(0, PercentageLabel.getPercentage(0));
+		assertEquals(50, PercentageLabel.getPercentage(0.5f));
+		assertEquals(100, PercentageLabel.getPercentage(CircleProgressModel.DEFAULT_SEGMENT_COUNT));
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+/**
+ * Canvas stand-in that records the draw operations of a frame, so render cost can be asserted on a plain JVM.
+ * Recording does not allocate.
+ */
+class RecordingDrawTarget implements DrawTarget {
+
+	static final int OP_CIRCLE = 0;
+	static final int OP_ARC = 1;
+
+	private static final int MAX_OPS = 16;
+	private static final int RING_BINS_PER_DEGREE = 10;
+	private static final int RING_BINS = 360 * RING_BINS_PER_DEGREE;
+
+	private final int[] mTypes = new int[MAX_OPS];
+	private final int[] mPaints = new int[MAX_OPS];
+	private final float[] mStartAngles = new float[MAX_OPS];
+	private final float[] mSweepAngles = new float[MAX_OPS];
+	private final int[] mRingCoverage = new int[RING_BINS];
+	private int mOps;
+
+	void reset() {
+		mOps = 0;
+	}
+
+	@Override
+	public void drawCircle(float centerX, float centerY, float radius, int paint) {
+		record(OP_CIRCLE, paint, 0, 0);
+	}
+
+	@Override
+	public void drawArc(float left, float top, float right, float bottom, float startAngle, float sweepAngle, int paint) {
+		record(OP_ARC, paint, startAngle, sweepAngle);
+	}
+
+	private void record(int type, int paint, float startAngle, float sweepAngle) {
+		if (mOps == MAX_OPS) {
+			throw new IllegalStateException("Too many draw operations in a single frame");
+		}
+		mTypes[mOps] = type;
+		mPaints[mOps] = paint;
+		mStartAngles[mOps] = startAngle;
+		mSweepAngles[mOps] = sweepAngle;
+		mOps++;
+	}
+
+	int getOpCount() {
+		return mOps;
+	}
+
+	int getOpCount(int type) {
+		int count = 0;
+		for (int i = 0; i < mOps; i++) {
+			if (mTypes[i] == type) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	int getPaint(int op) {
+		return mPaints[op];
+	}
+
+	/**
+	 * @return degrees of the progress ring painted more than once in the recorded frame
+	 */
+	float getArcOverdrawDegrees() {
+		java.util.Arrays.fill(mRingCoverage, 0);
+		for (int i = 0; i < mOps; i++) {
+			if (mTypes[i] != OP_ARC) {
+				continue;
+			}
+			int firstBin = Math.round(mStartAngles[i] * RING_BINS_PER_DEGREE);
+			int bins = Math.min(RING_BINS, Math.round(mSweepAngles[i] * RING_BINS_PER_DEGREE));
+			for (int bin = 0; bin < bins; bin++) {
+				mRingCoverage[((firstBin + bin) % RING_BINS + RING_BINS) % RING_BINS]++;
+			}
+		}
+		int overdrawnBins = 0;
+		for (int bin = 0; bin < RING_BINS; bin++) {
+			overdrawnBins += Math.max(0, mRingCoverage[bin] - 1);
+		}
+		return (float) overdrawnBins / RING_BINS_PER_DEGREE;
+	}
+
+}
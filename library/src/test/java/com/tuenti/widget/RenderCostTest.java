@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Render cost regression suite: bounds the number of draw operations and the overdrawn area of every frame, per
+ * animation state, by recording what the model draws.
+ */
+public class RenderCostTest {
+
+	private static final int SIZE = 200;
+	private static final float STROKE_WIDTH = 16;
+	private static final long FRAME_TIME_IN_NANOS = 16666667;
+	private static final int MAX_ARCS = 2;
+	private static final float MAX_ARC_OVERDRAW_DEGREES = 1;
+
+	private static final int[] MAX_OPS_PER_STATE = {
+			1, // STATE_INDETERMINATE
+			3, // STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS
+			2, // STATE_ANIM_PROGRESS
+			2, // STATE_PROGRESS
+			2, // STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE
+	};
+
+	private CircleProgressModel mModel;
+	private RecordingDrawTarget mTarget;
+	private int[] mMaxOpsSeen;
+
+	@Before
+	public void setUp() {
+		mModel = new CircleProgressModel(0, STROKE_WIDTH);
+		mModel.setSize(SIZE, SIZE);
+		mTarget = new RecordingDrawTarget();
+		mMaxOpsSeen = new int[MAX_OPS_PER_STATE.length];
+	}
+
+	@Test
+	public void indeterminatePulseDrawsOnlyTheCircle() {
+		runFrames(200);
+
+		assertEquals(1, mMaxOpsSeen[CircleProgressModel.STATE_INDETERMINATE]);
+	}
+
+	@Test
+	public void transitionsStayWithinBudget() {
+		for (int i = 0; i < 5; i++) {
+			mModel.setProgress(0.2f * i + 0.1f);
+			runFrames(200);
+			mModel.setIndeterminate();
+			runFrames(200);
+		}
+
+		assertTrue(mMaxOpsSeen[CircleProgressModel.STATE_TRANSITION_FROM_INDETERMINATE_TO_PROGRESS] > 0);
+		assertTrue(mMaxOpsSeen[CircleProgressModel.STATE_TRANSITION_FROM_PROGRESS_TO_INDETERMINATE] > 0);
+	}
+
+	@Test
+	public void progressAnimationsStayWithinBudget() {
+		mModel.setProgress(0);
+		runFrames(200);
+		mModel.setProgress(mModel.getMaxProgress());
+		runFrames(300);
+		mModel.setProgress(0.5f);
+		runFrames(300);
+		mModel.setProgress(1.5f);
+		runFrames(300);
+
+		assertTrue(mMaxOpsSeen[CircleProgressModel.STATE_ANIM_PROGRESS] > 0);
+		assertTrue(mMaxOpsSeen[CircleProgressModel.STATE_PROGRESS] > 0);
+	}
+
+	@Test
+	public void fullProgressDrawsASingleArc() {
+		mModel.setProgress(mModel.getMaxProgress());
+		runFrames(300);
+
+		assertEquals(CircleProgressModel.STATE_PROGRESS, mModel.getState());
+		assertEquals(1, mTarget.getOpCount());
+		assertEquals(DrawTarget.PAINT_PROGRESS_SECOND_PHASE, mTarget.getPaint(0));
+	}
+
+	@Test
+	public void pendingArcIsNotDrawnOnceTheSecondPhaseStarts() {
+		mModel.setProgress(1.5f);
+		runFrames(300);
+
+		assertEquals(CircleProgressModel.STATE_PROGRESS, mModel.getState());
+		assertEquals(2, mTarget.getOpCount());
+		for (int i = 0; i < mTarget.getOpCount(); i++) {
+			assertTrue(mTarget.getPaint(i) != DrawTarget.PAINT_PROGRESS_PENDING);
+		}
+	}
+
+	@Test
+	public void segmentsDrawTheCurrentLapOverThePreviousOne() {
+		mModel.setSegmentCount(5);
+		mModel.setProgress(3.25f);
+		runFrames(300);
+
+		assertEquals(CircleProgressModel.STATE_PROGRESS, mModel.getState());
+		assertEquals(2, mTarget.getOpCount());
+		assertEquals(DrawTarget.PAINT_PROGRESS_SEGMENT + 2, mTarget.getPaint(0));
+		assertEquals(DrawTarget.PAINT_PROGRESS_SEGMENT + 3, mTarget.getPaint(1));
+
+		mModel.setProgress(mModel.getMaxProgress());
+		runFrames(300);
+		mModel.setProgress(0.5f);
+		runFrames(300);
+		mModel.setIndeterminate();
+		runFrames(300);
+	}
+
+	private void runFrames(int frames) {
+		for (int i = 0; i < frames; i++) {
+			mModel.update(FRAME_TIME_IN_NANOS);
+			mTarget.reset();
+			mModel.draw(mTarget);
+			assertFrameWithinBudget(mModel.getState());
+		}
+	}
+
+	private void assertFrameWithinBudget(int state) {
+		int ops = mTarget.getOpCount();
+		mMaxOpsSeen[state] = Math.max(mMaxOpsSeen[state], ops);
+
+		assertTrue("Draw operations in state " + state + ": " + ops, ops <= MAX_OPS_PER_STATE[state]);
+		assertTrue("Arcs in state " + state, mTarget.getOpCount(RecordingDrawTarget.OP_ARC) <= MAX_ARCS);
+		assertTrue("Circles in state " + state, mTarget.getOpCount(RecordingDrawTarget.OP_CIRCLE) <= 1);
+		float overdraw = mTarget.getArcOverdrawDegrees();
+		assertTrue("Arc overdraw in state " + state + ": " + overdraw, overdraw <= MAX_ARC_OVERDRAW_DEGREES);
+	}
+
+}
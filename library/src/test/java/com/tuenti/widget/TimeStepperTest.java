@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Tuenti Technologies S.L. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tuenti.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeStepperTest {
+
+	private static final int SIZE = 200;
+	private static final float STROKE_WIDTH = 16;
+	private static final long MILLISECOND_IN_NANOS = 1000000;
+	private static final long VSYNC_INTERVAL_IN_NANOS = 16666667;
+	private static final long TIME_STEP_IN_NANOS = 4 * MILLISECOND_IN_NANOS;
+	private static final long MAX_FRAME_DELTA_IN_NANOS = 50 * MILLISECOND_IN_NANOS;
+
+	private TimeStepper mTimeStepper;
+	private ManualFrameClock mClock;
+	private RecordingTarget mTarget;
+
+	@Before
+	public void setUp() {
+		mTimeStepper = new TimeStepper();
+		mClock = new ManualFrameClock();
+		mTarget = new RecordingTarget();
+		mTimeStepper.reset(mClock.getFrameTimeInNanos());
+	}
+
+	@Test
+	public void manualStepsAreAppliedAsTheyAre() {
+		assertEquals(10 * MILLISECOND_IN_NANOS, step(10 * MILLISECOND_IN_NANOS, 0));
+		assertEquals(3 * MILLISECOND_IN_NANOS, step(3 * MILLISECOND_IN_NANOS, 0));
+		assertEquals(2, mTarget.mUpdates);
+	}
+
+	@Test
+	public void variableStepsAreRoundedToTheVsyncCarryingTheRest() {
+		assertEquals(VSYNC_INTERVAL_IN_NANOS, step(20 * MILLISECOND_IN_NANOS, VSYNC_INTERVAL_IN_NANOS));
+		assertEquals(2 * VSYNC_INTERVAL_IN_NANOS, step(30 * MILLISECOND_IN_NANOS, VSYNC_INTERVAL_IN_NANOS));
+		assertEquals(50 * MILLISECOND_IN_NANOS, mTarget.mAppliedTimeInNanos, 1);
+	}
+
+	@Test
+	public void fixedStepsCarryWhatDoesNotFillAStep() {
+		mTimeStepper.setFixedTimeStep(TIME_STEP_IN_NANOS, MAX_FRAME_DELTA_IN_NANOS);
+
+		assertEquals(8 * MILLISECOND_IN_NANOS, step(10 * MILLISECOND_IN_NANOS, VSYNC_INTERVAL_IN_NANOS));
+		assertEquals(2, mTarget.mUpdates);
+		assertEquals(12 * MILLISECOND_IN_NANOS, step(10 * MILLISECOND_IN_NANOS, VSYNC_INTERVAL_IN_NANOS));
+		assertEquals(5, mTarget.mUpdates);
+	}
+
+	@Test
+	public void fixedStepsApplyNoMoreThanTheMaximumAfterAStall() {
+		mTimeStepper.setFixedTimeStep(TIME_STEP_IN_NANOS, MAX_FRAME_DELTA_IN_NANOS);
+
+		assertEquals(48 * MILLISECOND_IN_NANOS, step(1000 * MILLISECOND_IN_NANOS, 0));
+		assertEquals(12, mTarget.mUpdates);
+	}
+
+	@Test
+	public void idleGapsAreNeitherAppliedNorCountedAsJank() {
+		FrameMetrics frameMetrics = new FrameMetrics();
+		recordStep(frameMetrics, VSYNC_INTERVAL_IN_NANOS);
+		mTimeStepper.invalidateTimeBase();
+		recordStep(frameMetrics, 5000 * MILLISECOND_IN_NANOS);
+
+		assertEquals(2, frameMetrics.getFramesUpdated());
+		assertEquals(0, frameMetrics.getJankFrames());
+		assertEquals(VSYNC_INTERVAL_IN_NANOS, frameMetrics.getTimeInStateInNanos(0));
+	}
+
+	@Test
+	public void fixedStepsMakeTheAnimationIndependentFromFrameTiming() {
+		CircleProgressModel slowFrames = steppedModel(16 * MILLISECOND_IN_NANOS, 60);
+		CircleProgressModel fastFrames = steppedModel(8 * MILLISECOND_IN_NANOS, 120);
+
+		assertEquals(slowFrames.getState(), fastFrames.getState());
+		assertEquals(slowFrames.getStatePhase(), fastFrames.getStatePhase());
+		assertEquals(slowFrames.getIndeterminateCircleY(), fastFrames.getIndeterminateCircleY(), 0);
+		assertEquals(slowFrames.getIndeterminateCircleRadius(), fastFrames.getIndeterminateCircleRadius(), 0);
+		assertEquals(slowFrames.getProgressArcCurrentAngle(), fastFrames.getProgressArcCurrentAngle(), 0);
+	}
+
+	private CircleProgressModel steppedModel(long frameTimeInNanos, int frames) {
+		final CircleProgressModel model = new CircleProgressModel(0, STROKE_WIDTH);
+		model.setSize(SIZE, SIZE);
+		model.setProgress(0.5f);
+
+		TimeStepper timeStepper = new TimeStepper();
+		timeStepper.setFixedTimeStep(TIME_STEP_IN_NANOS, MAX_FRAME_DELTA_IN_NANOS);
+		TimeStepper.Target target = new TimeStepper.Target() {
+			@Override
+			public void onUpdate(long elapsedTimeInNanos) {
+				model.update(elapsedTimeInNanos);
+			}
+		};
+		for (int i = 0; i < frames; i++) {
+			timeStepper.advance(frameTimeInNanos, VSYNC_INTERVAL_IN_NANOS, target);
+		}
+		return model;
+	}
+
+	/**
+	 * Moves the manual clock and advances by the time elapsed since the previous frame, as a view does
+	 */
+	private long step(long timeInNanos, long vsyncIntervalInNanos) {
+		mClock.advance(timeInNanos);
+		long elapsedTimeInNanos = mTimeStepper.getElapsedTime(mClock.getFrameTimeInNanos());
+		return mTimeStepper.advance(elapsedTimeInNanos, vsyncIntervalInNanos, mTarget);
+	}
+
+	private void recordStep(FrameMetrics frameMetrics, long timeInNanos) {
+		mClock.advance(timeInNanos);
+		long elapsedTimeInNanos = mTimeStepper.getElapsedTime(mClock.getFrameTimeInNanos());
+		long appliedTimeInNanos = mTimeStepper.advance(elapsedTimeInNanos, VSYNC_INTERVAL_IN_NANOS, mTarget);
+		frameMetrics.recordUpdate(0, elapsedTimeInNanos, appliedTimeInNanos, VSYNC_INTERVAL_IN_NANOS, 0);
+	}
+
+	private static class RecordingTarget implements TimeStepper.Target {
+
+		private int mUpdates;
+		private long mAppliedTimeInNanos;
+
+		@Override
+		public void onUpdate(long elapsedTimeInNanos) {
+			mUpdates++;
+			mAppliedTimeInNanos += elapsedTimeInNanos;
+		}
+	}
+
+}